@@ -0,0 +1,262 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tokenizer.*;
+
+/**
+This class holds the JMH benchmarks of the tokenizer, run by "gradle jmh".  The corpus of each trial is a file written (or reused) by CorpusGenerator for the parameters 'kind' and 'size' in the directory named by the system property pdef.corpus (build/corpus by default), so every fork of every run scans the same bytes.
+
+    scanFile    scans the whole file with a 'target' -- the targets of
+                TokenizerBench -- handing every token to a Blackhole; the
+                score is files per second, and the "tokens" counter gives
+                tokens per second
+    nextToken   takes a single token from a 'source' which goes round the
+                file, in SampleTime mode, so the score is the distribution
+                of the latency of one token rather than a mean
+
+Allocation per token is reported by the gc profiler, which "gradle jmh" turns on, and counts the allocation of every thread, the workers of the parallel target included.
+
+INTERFACE:
+
+    public long scanFile(FileState file, Tokens tokens, Blackhole sink) throws IOException
+    // Post: file has been scanned with file.target AND tokens.tokens has
+    //       been increased by the number of its tokens
+
+    public Object nextToken(SourceState source)
+    // Post: return the next token of source
+
+The state of a trial is held by the nested classes FileState, with the parameters kind, size and target, SourceState, with kind, size and source, and Tokens, the counter of tokens.
+
+*/
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TokenizerBenchmark {
+
+    // The state of a trial
+
+    @State(Scope.Benchmark)
+    public static class FileState {
+
+        @Param({"IDENT", "NUMBER", "PUNCT", "LONG_IDENT", "ERROR"})
+        public String kind;
+
+        @Param({"16m"})
+        public String size;
+
+        @Param({"reader", "reader-cursor", "mapped", "batch", "parallel"})
+        public String target;
+
+        Path file;
+        TokenBatch batch = new TokenBatch(1024);
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException
+        {
+            file = corpus(kind, size);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SourceState {
+
+        @Param({"IDENT", "NUMBER", "PUNCT", "LONG_IDENT", "ERROR"})
+        public String kind;
+
+        @Param({"16m"})
+        public String size;
+
+        @Param({"reader", "reader-cursor", "mapped", "parallel"})
+        public String source;
+
+        Path file;
+        BufferedReader in;          // open for the reader sources
+        Tokenizer tokenizer;        // for all but parallel
+        ParallelTokenizer parallel; // for parallel
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException
+        {
+            file = corpus(kind, size);
+            open();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException
+        {
+            close();
+        }
+
+        Object next() throws IOException
+        // Post: return the next token of the file, starting it again
+        //       after its EOF_T
+        {
+            Object token;
+            Token.TokenType type;
+            if (source.equals("reader-cursor") || source.equals("mapped")) {
+                TokenCursor t = tokenizer.nextToken();
+                token = t;
+                type = t.getType();
+            }
+            else {
+                Token t = (parallel != null) ? parallel.getNextToken() : tokenizer.getNextToken();
+                token = t;
+                type = t.getType();
+            }
+            if (type == Token.TokenType.EOF_T) {
+                close();
+                open();
+            }
+            return token;
+        }
+
+        private void open() throws IOException
+        {
+            if (source.equals("parallel"))
+                parallel = new ParallelTokenizer(file);
+            else if (source.equals("mapped"))
+                tokenizer = new Tokenizer(file, false);
+            else
+                tokenizer = new Tokenizer(in = Files.newBufferedReader(file), false);
+        }
+
+        private void close() throws IOException
+        {
+            if (parallel != null)
+                parallel.close();
+            if (in != null)
+                in.close();
+            parallel = null;
+            in = null;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Tokens {
+
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            tokens = 0;
+        }
+    }
+
+    // Benchmarks
+
+    @Benchmark
+    public long scanFile(FileState file, Tokens tokens, Blackhole sink) throws IOException
+    // Post: file has been scanned with file.target AND tokens.tokens has
+    //       been increased by the number of its tokens
+    {
+        long n = 0;
+        switch (file.target) {
+        case "reader":
+            try (BufferedReader in = Files.newBufferedReader(file.file)) {
+                Tokenizer t = new Tokenizer(in, false);
+                Token k;
+                do {
+                    k = t.getNextToken();
+                    sink.consume(k);
+                    n++;
+                } while (k.getType() != Token.TokenType.EOF_T);
+            }
+            break;
+        case "reader-cursor":
+            try (BufferedReader in = Files.newBufferedReader(file.file)) {
+                n = cursor(new Tokenizer(in, false), sink);
+            }
+            break;
+        case "mapped":
+            n = cursor(new Tokenizer(file.file, false), sink);
+            break;
+        case "batch":
+            n = batch(new Tokenizer(file.file, false)::nextTokens, file.batch, sink);
+            break;
+        case "parallel":
+            try (ParallelTokenizer t = new ParallelTokenizer(file.file)) {
+                n = batch(t::nextTokens, file.batch, sink);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("unknown target " + file.target);
+        }
+        tokens.tokens += n;
+        return n;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object nextToken(SourceState source) throws IOException
+    // Post: return the next token of source
+    {
+        return source.next();
+    }
+
+    // Helpers
+
+    private static Path corpus(String kind, String size) throws IOException
+    // Post: return the corpus file of kind and size
+    {
+        Path dir = Paths.get(System.getProperty("pdef.corpus", "build/corpus"));
+        return CorpusGenerator.generate(CorpusGenerator.Kind.valueOf(kind), TokenizerBench.parseSize(size), dir);
+    }
+
+    private static long cursor(Tokenizer t, Blackhole sink)
+    // Post: return the number of tokens of t, each given to sink
+    {
+        long n = 0;
+        TokenCursor k;
+        do {
+            k = t.nextToken();
+            sink.consume(k.getOffset());
+            sink.consume(k.getSymbol());
+            n++;
+        } while (k.getType() != Token.TokenType.EOF_T);
+        return n;
+    }
+
+    private interface Batches { int nextTokens(TokenBatch batch); }
+
+    private static long batch(Batches source, TokenBatch batch, Blackhole sink)
+    // Post: return the number of tokens of source, each given to sink
+    {
+        long n = 0;
+        int k;
+        do {
+            k = source.nextTokens(batch);
+            for (int i = 0; i != k; i++)
+                sink.consume(batch.getStart(i));
+            n += k;
+        } while (batch.getType(k - 1) != Token.TokenType.EOF_T);
+        return n;
+    }
+}
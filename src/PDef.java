@@ -1,4 +1,8 @@
 import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
 import tokenizer.*;
 import debug.*;
 
@@ -8,10 +12,28 @@ This is the driver class which tests the Token and Tokenizer classes. The method
     char     capability
     'e'      echo to the screen the input data as it is read 
     't'      turn on debugging code in the Tokenizer object
+    'm'      count the tokens, errors and time taken by the Tokenizer in
+             a TokenizerStats, which is published over JMX while the
+             program runs and printed at the end
+    'r'      recover from malformed tokens at the next delimiter, and
+             print a diagnostic for each (up to 1000) at the end
+    'f'      stop at the first malformed token with its diagnostic
+    'w'      write the output on a thread of its own, so that scanning
+             and writing overlap
+    'j'      write the tokens as JSON Lines, one object per token
+    'c'      write the tokens as CSV, with a header line
+    's'      write the tokens as TSV, with a header line
+    'b'      write the tokens as length-prefixed binary records
     
-If the first argument is not a valid input file name then the program will terminate with an error message indicating the problem.
+If the first argument is not a valid input file name then the program will terminate with an error message indicating the problem.  A regular file is memory mapped and its bytes scanned directly as UTF-8, unless it starts with a UTF-16 byte order mark, in which case it is decoded as UTF-16; anything else, such as a pipe, is read as UTF-8 through a Reader.  The platform's default charset is never used.
 
-The output from main will be a sequence of lines, each containing the name of a token (from Token.TokenType) along with the string value of the token, the line number where it occurred, and the position on the line where its first character appeared.
+The output from main will be a sequence of lines, each containing the name of a token (from Token.TokenType) along with the string value of the token, the line number where it occurred, and the position on the line where its first character appeared.  All of it is written in UTF-8 through one TokenPrinter, which formats the tokens straight into a large buffer and writes it to standard out a block at a time; the echoed input and the debug messages go through it too, so they keep their places among the tokens.  With 'j', 'c', 's' or 'b' standard out holds only the tokens, each a record of its type, text, offset, line and column in the format described in TokenPrinter, for another program to read; everything else, echo and debug messages included, goes to standard error.
+
+If the first argument is -b the program runs in batch mode, tokenizing many files in one run:
+
+    java PDef -b [-j n] [-m] [-w] [-o format] source ...
+
+where each source is a file, a directory (every regular file below it), a glob such as src/**.pdef, or @list, a file naming one source per line.  The files are tokenized n at a time (one per processor by default) by a BatchTokenizer, and the output for each file, as above, appears in the order of the sources -- the files of a directory or glob sorted by name -- so it is the same from run to run.  A file which cannot be tokenized is reported and the batch goes on; the run ends with a summary of the files, failures and throughput, and with -m the counts of one TokenizerStats shared by every file.  As with 'w', -w writes the output on a thread of its own, and -o writes the tokens in a format named listing, jsonl, csv, tsv or binary; each record then begins with the file its token came from.
 
 @author J. Mead -- July '08
 */
@@ -20,59 +42,267 @@ The output from main will be a sequence of lines, each containing the name of a
 
 public class PDef {
 
+    private static final int maxDiagnostics = 1000;  // bound on those
+                                                     // printed with 'r'
+    private static final int outSize = 1 << 16;      // bytes of output
+                                                     // written at once
+
     public static void main(String[] args) {
     
         // local variables
                     
-        BufferedReader in = null;   // the input character stream
+        Tokenizer tins    = null;   // the tokenizer over the input file
         boolean echo      = false;  // if true the input is echoed --
                                     // value is 'false' by default
                                     // and set to true if 'e' appears
                                     // as a command line argument
         
+        TokenizerStats stats = null;  // counts of the scan, if 'm'
+                                      // appears as a command line
+                                      // argument
+        Tokenizer.ErrorMode mode = Tokenizer.ErrorMode.TOKENS;
+                                    // set by 'r' or 'f'
+        
         int numArgs = args.length;  // number of command line arguments
                                     // (doen't include command name)
 
-        System.out.println("Yunjia Zeng");
+        boolean batch = numArgs > 0 && args[0].equals("-b");
+        String flags  = (!batch && numArgs > 1) ? args[1] : "";
+        TokenPrinter.Format format = format(args, flags);
+        TokenPrinter out = new TokenPrinter(Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+                                            format, outSize,
+                                            batch ? Arrays.asList(args).contains("-w") : flags.indexOf('w') != -1);
+                                    // the tokens go through out, on a
+                                    // thread of its own if 'w' appears
+                                    // as a command line argument
+        TokenPrinter text = (format == TokenPrinter.Format.LISTING) ? out
+            : new TokenPrinter(Channels.newChannel(new FileOutputStream(FileDescriptor.err)));
+                                    // and everything else through text
+                                    // -- out too, unless the tokens are
+                                    // records for another program
+        text.append("Yunjia Zeng\n");
+        if (batch) {
+            batch(args, out, text);
+            finish(out, text);
+            return;
+        }
         if (numArgs < 1) {
             // There must be a file name!
-            System.out.println("Not enough arguments!\n");
+            text.append("Not enough arguments!\n\n");
+            finish(out, text);
             System.exit(0);
         }
         else  { 
+            if (numArgs > 1)  // args[1] holds debug flags
+               for (int i = 0; i != args[1].length(); i++) {
+                   switch (args[1].charAt(i)) {
+                   case 'e': echo    = true; break;
+                   case 'm': stats   = new TokenizerStats(); break;
+                   case 'r': mode    = Tokenizer.ErrorMode.RECOVER; break;
+                   case 'f': mode    = Tokenizer.ErrorMode.FAIL; break;
+                   }
+                   // ignore invalid flag names
+               }
+
             // args[0] is the data file name
             try { 
-               in = new BufferedReader(new FileReader(args[0])); 
-               if (numArgs > 1)  // args[1] holds debug flags
-                  for (int i = 0; i != args[1].length(); i++) {
-                      switch (args[1].charAt(i)) {
-                      case 'e': echo    = true; break;
-                      case 't': Debug.registerFlag ('t'); break;
-                      }
-                      // ignore invalid flag names
-                  }
+               tins = new Tokenizer(Paths.get(args[0]), echo);
             }
-            catch (FileNotFoundException e) {
-               System.out.printf("Could not open file `%s'\n", args[0]);
+            catch (IOException | InvalidPathException e) {
+               text.append(String.format("Could not open file `%s'\n", args[0]));
+               finish(out, text);
                System.exit(0);
             }
+            tins.setEcho(text);
+            tins.setDebug(new TokenizerDebug(flags, text));  // on if 't'
+                                                             // appears
+            if (stats != null)
+               tins.setMetrics(published(stats));
+            tins.setErrorMode(mode, maxDiagnostics);
         }
-
-        Tokenizer tins = new Tokenizer(in, echo);
         
-        System.out.println("\nTokens appearing in input file `" + args[0] + "'");
-        System.out.println();
+        text.append("\nTokens appearing in input file `" + args[0] + "'\n");
+        text.append('\n');
 
-        Token t = tins.getNextToken();  // get the first token
-        while (t.getType() != Token.TokenType.EOF_T) {
-           // there's another interesting token -- print it
-           System.out.println(t);
-           t = tins.getNextToken();  // make progress toward termination
+        try {
+           TokenCursor t = tins.nextToken();  // get the first token
+           while (t.getType() != Token.TokenType.EOF_T) {
+              // there's another interesting token -- print it
+              out.print(t);
+              t = tins.nextToken();  // make progress toward termination
+           }
+           out.print(t);
+        }
+        catch (TokenizerException e) {
+           text.append(e.getMessage() + (e.getCause() != null ? ": " + e.getCause() : "") + "\n");
+        }
+        catch (UncheckedIOException e) {  // standard out is closed
+           System.err.println("Output could not be written: " + e.getCause().getMessage());
+           System.exit(1);
         }
         
-        System.out.println(t);
-        System.out.println( "\nAll done!\n");
+        if (mode == Tokenizer.ErrorMode.RECOVER) {
+            text.append("\n" + tins.getErrorCount() + " malformed tokens\n");
+            for (Diagnostic d : tins.getDiagnostics())
+                text.append(d.toString()).append('\n');
+        }
+        if (stats != null)
+            text.append("\n" + stats + "\n");
+        text.append( "\nAll done!\n\n");
+        finish(out, text);
+
+    }
+
+    private static void batch(String[] args, TokenPrinter out, TokenPrinter text)
+    // Pre:  args[0] is -b
+    // Post: the tokens of the files named by the remaining arguments
+    //       have been printed to out in order, and a summary to text
+    {
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        TokenizerStats stats = null;
+        List<Path> files = new ArrayList<Path>();
+        try {
+            for (int i = 1; i != args.length; i++) {
+                if (args[i].equals("-j") && i + 1 != args.length)
+                    concurrency = Math.max(1, Integer.parseInt(args[++i]));
+                else if (args[i].equals("-m"))
+                    stats = new TokenizerStats();
+                else if (args[i].equals("-w"))
+                    ;  // out was made with its own writer thread
+                else if (args[i].equals("-o") && i + 1 != args.length)
+                    i++;  // and in the format named
+                else
+                    sources(args[i], files);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            text.append("Bad batch arguments: " + e.getMessage() + "\n");
+            finish(out, text);
+            System.exit(0);
+        }
+
+        BatchTokenizer.Summary summary = null;
+        try {
+            BatchTokenizer batch = new BatchTokenizer(concurrency);
+            if (stats != null)
+                batch.setMetrics(published(stats));
+            summary = batch.run(files, r -> {
+                if (r.getFailure() != null) {
+                    text.append(String.format("\nCould not tokenize file `%s': %s\n", r.getPath(), r.getFailure()));
+                    return;
+                }
+                text.append("\nTokens appearing in input file `" + r.getPath() + "'\n");
+                text.append('\n');
+                out.setSource(r.getPath().toString());
+                for (Token t : r.getTokens())
+                    out.print(t);
+            });
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        text.append("\n" + summary + "\n");
+        if (stats != null)
+            text.append(stats + "\n");
+        text.append( "\nAll done!\n\n");
+    }
+
+    private static TokenPrinter.Format format(String[] args, String flags)
+    // Post: return the format of the tokens named by the command line --
+    //       by a flag j, c, s or b, or in batch mode by -o and the name
+    //       of a format -- LISTING if none is named
+    {
+        if (args.length > 0 && args[0].equals("-b")) {
+            for (int i = 1; i < args.length - 1; i++)
+                if (args[i].equals("-o"))
+                    try {
+                        return TokenPrinter.Format.valueOf(args[i + 1].toUpperCase());
+                    }
+                    catch (IllegalArgumentException e) {
+                        System.err.println("Unknown format `" + args[i + 1] + "'");
+                        System.exit(0);
+                    }
+            return TokenPrinter.Format.LISTING;
+        }
+        TokenPrinter.Format format = TokenPrinter.Format.LISTING;
+        for (int i = 0; i != flags.length(); i++)
+            switch (flags.charAt(i)) {
+            case 'j': format = TokenPrinter.Format.JSONL; break;
+            case 'c': format = TokenPrinter.Format.CSV; break;
+            case 's': format = TokenPrinter.Format.TSV; break;
+            case 'b': format = TokenPrinter.Format.BINARY; break;
+            }
+        return format;
+    }
+
+    private static void finish(TokenPrinter out, TokenPrinter text)
+    // Post: everything printed to out and text has been written AND both
+    //       are closed -- a failure to write is reported on System.err
+    {
+        try {
+            out.close();
+            text.close();
+        }
+        catch (IOException e) {
+            System.err.println("Output could not be written: " + e.getMessage());
+        }
+    }
+
+    private static TokenizerStats published(TokenizerStats stats)
+    // Post: stats is registered over JMX, if it can be, AND return stats
+    {
+        try {
+            stats.register("PDef");
+        }
+        catch (javax.management.JMException | SecurityException e) {
+            System.err.println("Tokenizer stats are not published: " + e.getMessage());
+        }
+        return stats;
+    }
+
+    private static void sources(String source, List<Path> files) throws IOException
+    // Post: the files named by source are added to files -- the files of
+    //       a directory or glob in order of their names
+    {
+        if (source.startsWith("@")) {  // a list of sources
+            for (String line : Files.readAllLines(Paths.get(source.substring(1))))
+                if (!line.trim().isEmpty())
+                    sources(line.trim(), files);
+            return;
+        }
+
+        int glob = indexOfAny(source, "*?[{");
+        if (glob == -1) {
+            Path path = Paths.get(source);
+            if (Files.isDirectory(path))
+                try (Stream<Path> s = Files.walk(path)) {
+                    s.filter(Files::isRegularFile).sorted().forEachOrdered(files::add);
+                }
+            else
+                files.add(path);  // a missing file fails in the batch
+            return;
+        }
+
+        // walk from the directory holding the first glob character
+        int slash = source.lastIndexOf('/', glob);
+        Path base = Paths.get(slash == -1 ? "." : (slash == 0 ? "/" : source.substring(0, slash)));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + source);
+        try (Stream<Path> s = Files.walk(base)) {
+            s.filter(Files::isRegularFile)
+             .map(p -> (slash == -1) ? base.relativize(p) : p)
+             .filter(matcher::matches).sorted().forEachOrdered(files::add);
+        }
+    }
 
+    private static int indexOfAny(String s, String chars)
+    // Post: return the index of the first character of s in chars, or -1
+    {
+        for (int i = 0; i != s.length(); i++)
+            if (chars.indexOf(s.charAt(i)) != -1)
+                return i;
+        return -1;
     }
 
 }
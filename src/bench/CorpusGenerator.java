@@ -0,0 +1,118 @@
+package bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+This class writes synthetic PDef input files for the tokenizer benchmarks.  Each Kind of corpus stresses a different part of the scanner:
+
+    kind          content
+    IDENT         short identifiers and the keywords int and float in
+                  declaration lists -- the identifier loop and keyword lookup
+    NUMBER        integers and decimal numbers -- the number states
+    PUNCT         runs of = { } , with few other characters -- START_S
+    LONG_IDENT    identifiers of 64 to 256 letters -- the identifier loop alone
+    ERROR         illegal characters, # $ & ; : < > ? @ [ ] ^ | ~ !, mixed with
+                  identifiers -- ERROR_T
+
+The output is deterministic for a given kind and size (the random generator is seeded), so runs on different machines scan the same bytes.  No number starts with the digit 0, so that every number generated is well formed (a leading 0 followed by a digit is an ERROR_T).
+
+INTERFACE:
+
+    public static Path generate(Kind kind, long size, Path dir) throws IOException
+    // Post: return dir/<kind>-<size>.pdef, a file of about size bytes of
+    //       the given kind -- an existing file of that name is reused
+
+    public static void write(Kind kind, long size, Writer out) throws IOException
+    // Post: about size characters of the given kind are written to out
+
+HELPERS:
+
+    private static void ident(Random r, StringBuilder sb, int min, int max)
+    // Post: an identifier of min .. max letters is appended to sb
+
+*/
+
+public class CorpusGenerator {
+
+    public enum Kind { IDENT, NUMBER, PUNCT, LONG_IDENT, ERROR };
+
+    private static final String letters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String illegal = "#$&;:<>?@[]^|~!";
+
+    public static Path generate(Kind kind, long size, Path dir) throws IOException
+    // Post: return dir/<kind>-<size>.pdef, a file of about size bytes of
+    //       the given kind -- an existing file of that name is reused
+    {
+        Path file = dir.resolve(kind.name().toLowerCase() + "-" + size + ".pdef");
+        if (Files.exists(file) && Files.size(file) >= size)
+            return file;
+        Files.createDirectories(dir);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            write(kind, size, out);
+        }
+        return file;
+    }
+
+    public static void write(Kind kind, long size, Writer out) throws IOException
+    // Post: about size characters of the given kind are written to out
+    {
+        Random r = new Random(kind.ordinal() * 31 + size);
+        StringBuilder sb = new StringBuilder(1 << 16);
+        long written = 0;
+
+        while (written < size) {
+            sb.setLength(0);
+            while (sb.length() < (1 << 15)) {
+                switch (kind) {
+                case IDENT:
+                    sb.append(r.nextBoolean() ? "int " : "float ");
+                    ident(r, sb, 1, 10);
+                    for (int i = r.nextInt(4); i != 0; i--) {
+                        sb.append(", ");
+                        ident(r, sb, 1, 10);
+                    }
+                    sb.append(r.nextInt(8) == 0 ? "\n" : " ");
+                    break;
+                case NUMBER:
+                    sb.append(1 + r.nextInt(9)).append(r.nextInt(100000));
+                    if (r.nextBoolean())
+                        sb.append('.').append(r.nextInt(1000));
+                    sb.append(r.nextInt(8) == 0 ? "\n" : " ");
+                    break;
+                case PUNCT:
+                    sb.append("{=,}".charAt(r.nextInt(4)));
+                    if (r.nextInt(16) == 0)
+                        sb.append(r.nextInt(8) == 0 ? '\n' : ' ');
+                    break;
+                case LONG_IDENT:
+                    ident(r, sb, 64, 256);
+                    sb.append(r.nextInt(8) == 0 ? "\n" : " ");
+                    break;
+                case ERROR:
+                    if (r.nextBoolean())
+                        sb.append(illegal.charAt(r.nextInt(illegal.length())));
+                    else
+                        ident(r, sb, 1, 6);
+                    sb.append(r.nextInt(8) == 0 ? "\n" : " ");
+                    break;
+                }
+            }
+            int n = (int)Math.min(sb.length(), size - written);
+            out.write(sb.toString(), 0, n);
+            written += n;
+        }
+        out.write('\n');
+    }
+
+    private static void ident(Random r, StringBuilder sb, int min, int max)
+    // Post: an identifier of min .. max letters is appended to sb
+    {
+        for (int i = min + r.nextInt(max - min + 1); i != 0; i--)
+            sb.append(letters.charAt(r.nextInt(letters.length())));
+    }
+}
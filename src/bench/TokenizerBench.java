@@ -0,0 +1,245 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tokenizer.*;
+
+/**
+This class is the driver for the tokenizer benchmarks.  It generates (or reuses) a corpus file for each requested kind and size with CorpusGenerator, then scans each file with each requested target -- a named way of running a scanner over a file -- and prints, for every combination,
+
+    tokens/s     tokens scanned per second
+    MB/s         input megabytes scanned per second
+    ns/token     average time per token
+    alloc MB/s   bytes allocated per second by the scanning thread
+    B/token      bytes allocated per token
+
+Each measurement is the mean of 'iterations' runs after 'warmups' runs that are not measured.  Allocation is read from the HotSpot ThreadMXBean, so it covers the calling thread only (the workers of the parallel target are not counted).  A target which fails on a file -- which cannot read it, or runs out of memory -- gets a line saying so, and the run goes on with the next.
+
+This is a quick check, run in a single JVM with no forks.  The measurements to trust are those of the JMH benchmarks of TokenizerBenchmark (under jmh, run by "gradle jmh"), which fork, sink every token in a Blackhole, give the distribution of the latency of a single token and count the allocation of every thread with the gc profiler.
+
+The command line is
+
+    java bench.TokenizerBench dir [size ...] [-k kind ...] [-t target ...]
+                              [-w warmups] [-i iterations]
+
+where sizes are written with an optional suffix k, m or g (default 1m 100m 1g), kinds are those of CorpusGenerator.Kind (default all) and targets are names registered below (default all).
+
+A new scanner is benchmarked by registering a Target for it with 'register'; the targets defined here are
+
+    reader          getNextToken over a BufferedReader
+    reader-cursor   nextToken over a BufferedReader
+    mapped          nextToken over the memory mapped file
+    batch           nextTokens over the memory mapped file
+    parallel        ParallelTokenizer over the file
+
+INTERFACE:
+
+    public interface Target { long scan(Path file) throws IOException; }
+    // Post: the file has been scanned AND return the number of tokens
+
+    public static void register(String name, Target target)
+    // Post: target is run under the given name
+
+    public static void main(String[] args) throws IOException
+
+HELPERS:
+
+    static long parseSize(String s)
+    // Post: return the number of bytes written as s
+
+    private static long allocated()
+    // Post: return the bytes allocated so far by the current thread, or
+    //       -1 if the JVM cannot tell
+
+    private static void measure(String target, Path file, int warmups, int iterations)
+    // Post: a line of results for target on file is printed -- or the
+    //       failure of the target, and the run goes on
+
+*/
+
+public class TokenizerBench {
+
+    public interface Target { long scan(Path file) throws IOException; }
+
+    private static final Map<String, Target> targets = new LinkedHashMap<String, Target>();
+
+    static {
+        register("reader", file -> {
+            try (BufferedReader in = Files.newBufferedReader(file)) {
+                Tokenizer t = new Tokenizer(in, false);
+                long n = 1;
+                while (t.getNextToken().getType() != Token.TokenType.EOF_T)
+                    n++;
+                return n;
+            }
+        });
+        register("reader-cursor", file -> {
+            try (BufferedReader in = Files.newBufferedReader(file)) {
+                Tokenizer t = new Tokenizer(in, false);
+                long n = 1;
+                while (t.nextToken().getType() != Token.TokenType.EOF_T)
+                    n++;
+                return n;
+            }
+        });
+        register("mapped", file -> {
+            Tokenizer t = new Tokenizer(file, false);
+            long n = 1;
+            while (t.nextToken().getType() != Token.TokenType.EOF_T)
+                n++;
+            return n;
+        });
+        register("batch", file -> {
+            Tokenizer t = new Tokenizer(file, false);
+            TokenBatch batch = new TokenBatch(1024);
+            long n = 0;
+            int k;
+            do {
+                k = t.nextTokens(batch);
+                n += k;
+            } while (batch.getType(k - 1) != Token.TokenType.EOF_T);
+            return n;
+        });
+        register("parallel", file -> {
+            try (ParallelTokenizer t = new ParallelTokenizer(file)) {
+                TokenBatch batch = new TokenBatch(1024);
+                long n = 0;
+                int k;
+                do {
+                    k = t.nextTokens(batch);
+                    n += k;
+                } while (batch.getType(k - 1) != Token.TokenType.EOF_T);
+                return n;
+            }
+        });
+    }
+
+    public static void register(String name, Target target)
+    // Post: target is run under the given name
+    {
+        targets.put(name, target);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1) {
+            System.out.println("usage: TokenizerBench dir [size ...] [-k kind ...] [-t target ...] [-w warmups] [-i iterations]");
+            System.exit(0);
+        }
+
+        Path dir = Paths.get(args[0]);
+        List<Long> sizes = new ArrayList<Long>();
+        List<CorpusGenerator.Kind> kinds = new ArrayList<CorpusGenerator.Kind>();
+        List<String> names = new ArrayList<String>();
+        int warmups = 3, iterations = 5;
+
+        char list = 's';  // the list the next word belongs to
+        for (int i = 1; i != args.length; i++) {
+            String a = args[i];
+            if (a.equals("-k") || a.equals("-t"))
+                list = a.charAt(1);
+            else if (a.equals("-w"))
+                warmups = Integer.parseInt(args[++i]);
+            else if (a.equals("-i"))
+                iterations = Integer.parseInt(args[++i]);
+            else if (list == 'k')
+                kinds.add(CorpusGenerator.Kind.valueOf(a.toUpperCase()));
+            else if (list == 't') {
+                if (!targets.containsKey(a))
+                    throw new IllegalArgumentException("unknown target " + a + ", known: " + targets.keySet());
+                names.add(a);
+            }
+            else
+                sizes.add(parseSize(a));
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(parseSize("1m"));
+            sizes.add(parseSize("100m"));
+            sizes.add(parseSize("1g"));
+        }
+        if (kinds.isEmpty())
+            for (CorpusGenerator.Kind k : CorpusGenerator.Kind.values())
+                kinds.add(k);
+        if (names.isEmpty())
+            names.addAll(targets.keySet());
+
+        System.out.printf("%-30s %-14s %14s %10s %10s %12s %10s%n",
+                          "file", "target", "tokens/s", "MB/s", "ns/token", "alloc MB/s", "B/token");
+        for (CorpusGenerator.Kind kind : kinds)
+            for (long size : sizes) {
+                Path file = CorpusGenerator.generate(kind, size, dir);
+                for (String name : names)
+                    measure(name, file, warmups, iterations);
+            }
+    }
+
+    // Helpers
+
+    static long parseSize(String s)
+    // Post: return the number of bytes written as s
+    {
+        s = s.toLowerCase();
+        long unit = 1;
+        switch (s.charAt(s.length() - 1)) {
+        case 'k': unit = 1L << 10; break;
+        case 'm': unit = 1L << 20; break;
+        case 'g': unit = 1L << 30; break;
+        }
+        if (unit != 1)
+            s = s.substring(0, s.length() - 1);
+        return Long.parseLong(s) * unit;
+    }
+
+    private static long allocated()
+    // Post: return the bytes allocated so far by the current thread, or
+    //       -1 if the JVM cannot tell
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    private static void measure(String name, Path file, int warmups, int iterations) throws IOException
+    // Post: a line of results for target on file is printed -- or the
+    //       failure of the target, and the run goes on
+    {
+        Target target = targets.get(name);
+        long tokens = 0, nanos = 0, bytes = 0;
+        try {
+            for (int i = 0; i != warmups; i++)
+                target.scan(file);
+
+            for (int i = 0; i != iterations; i++) {
+                long a = allocated();
+                long t = System.nanoTime();
+                tokens += target.scan(file);
+                nanos  += System.nanoTime() - t;
+                bytes  += allocated() - a;
+            }
+        }
+        catch (IOException | RuntimeException | OutOfMemoryError e) {
+            System.out.printf("%-30s %-14s failed: %s%n", file.getFileName(), name, e);
+            return;
+        }
+
+        double seconds = nanos / 1e9;
+        double size = (double)Files.size(file) * iterations;
+        System.out.printf("%-30s %-14s %14.0f %10.1f %10.2f %12.1f %10.2f%n",
+                          file.getFileName(), name,
+                          tokens / seconds,
+                          size / (1 << 20) / seconds,
+                          (double)nanos / tokens,
+                          bytes / (double)(1 << 20) / seconds,
+                          (double)bytes / tokens);
+    }
+}
@@ -1,41 +1,49 @@
 package debug;
 
-import java.util.*;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.function.Supplier;
 
 /**
-This class is the top of a debugging hierarchy.  This class maintains static data including 'commandLine', which is a string of command line arguments -- each specified by a known character, 'FlagNum', which contains the position in 'flags' that can allocated next, 'flag', which is an ArrayList holding the debug flag values for each command line flag.
+This class is the top of a debugging hierarchy.  An object of a subclass controls the debugging messages of one debuggable class, and is named by the command line character of that class: 't' for the Tokenizer, say.
 
-When a command line argument is encountered (typically in the main method) the static method 'registerFlag' is called with the particular argument character as argument.  That character is added to 'commandLine'.  
+The program (typically its main method) collects the command line flags in a string 'commandLine', and makes a debug object for each debuggable class with that string and 'sink', the Appendable where the messages are to be written -- System.out, or a BufferedWriter, say.  The object's flag 'on' is true if its character appears in commandLine, and is fixed when it is made.  The object is then handed to each debuggable object which is to report through it; one which is handed none uses a subclass's object which is off.
 
-When a debuggable class is instantiated its constructor will instantiate its corresponding subclass of 'Debug' and call the method 'registerObject' and pass as argument its assigned command line character.  'registerObject' will first assign a position p in 'flags' and initialize flags[p] to true if the argument character appears in 'commandLine' and false otherwise.  The value of 'p' is returned to the caller as the registration number. 
+Nothing in this package is static and mutable: a debug object holds no more than its flag and its sink, so objects may be made, shared and dropped from any number of threads at once (a service may make a Tokenizer for each of its requests), and there is no registry to grow with the number made.
+
+Since a flag cannot change once an object is made, a disabled message costs a single boolean test, and no message string is built unless it is going to be written.  Messages whose construction is expensive can be passed as a Supplier, which is only called when the flag is on.
+
+Messages are written, one per line, to 'sink'.  Messages from several threads may go to one sink, so 'write' synchronizes on it; that is not on the path of a disabled message.  A sink which buffers is emptied by 'flush'.
 
 STATE:
 
 See the description above.
 
-   private static String commandLine = "";
-   private static int flagNum = 0;
-   private static ArrayList<Boolean> flags = new ArrayList<Boolean>();
-   
+   private final boolean on;
+   private final Appendable sink;
+
 INTERFACE:
 
-   public static void registerFlag(char ch)  
-   // Pre:  ch is a commandline character to be registered -- 
-   // Post: commandLine.indexOf(ch) != -1 
+   protected Debug(char ch, String commandLine, Appendable sink)
+   // Post: on == ( commandLine.indexOf(ch) != -1 ) AND
+   //       this.sink == sink
+
+   public boolean isOn()
+   // Post: return on
+
+   public void show(String msg)
+   // Post: if on the message msg is written to sink
 
-   public int registerObject(char ch) 
-   // Post: psn == (in)flagNum AND psn >= 0 AND flagNum == (in)flagNum+1
-   //       flags.get(psn) == ( commandLine.indexOf(ch) != -1 ) AND
-   //       return psn
+   public void show(Supplier<String> msg)
+   // Post: if on the message msg.get() is written to sink
 
-   public void show(int psn, String msg) 
-   // Pre:  0 <= psn < FlagNum AND
-   //       psn is a registration number sent from 
-   //       an instance of a subclass of Debug
+   public void flush()
+   // Post: if sink is Flushable it has been flushed
 
 HELPERS:
 
-This class has no helper methods.
+   protected void write(String msg)
+   // Post: msg and an end of line are written to sink
 
 CLASS INVARIANT:
 
@@ -47,37 +55,61 @@ This class has no class invariant.
 
 public abstract class Debug {
 
-   // Static class state
-   
-   private static String commandLine = "";
-   private static int flagNum = 0;
-   private static ArrayList<Boolean> flags = new ArrayList<Boolean>();
-   
+   // State
+
+   private final boolean on;
+   private final Appendable sink;
+
+   // Constructor
+
+   protected Debug(char ch, String commandLine, Appendable sink)
+   // Post: on == ( commandLine.indexOf(ch) != -1 ) AND
+   //       this.sink == sink
+   {
+      this.on = commandLine.indexOf(ch) != -1;
+      this.sink = sink;
+   }
+
    // Interface -- public methods
-   
-   public static void registerFlag(char ch)  
-   // Pre:  ch is a commandline character to be registered -- 
-   // Post: commandLine.indexOf(ch) != -1 
+
+   public boolean isOn()
+   // Post: return on
+   {
+      return on;
+   }
+
+   public void show(String msg)
+   // Post: if on the message msg is written to sink
    {
-      commandLine += ch; 
+      if (on)
+          write(msg);
    }
 
-   public int registerObject(char ch) 
-   // Post: psn == (in)flagNum AND psn >= 0 AND flagNum == (in)flagNum+1
-   //       flags.get(psn) == ( commandLine.indexOf(ch) != -1 ) AND
-   //       return psn
+   public void show(Supplier<String> msg)
+   // Post: if on the message msg.get() is written to sink
    {
-       int psn = flagNum++;
-       flags.add(psn,  commandLine.indexOf(ch) != -1 ); 
-       return psn;
+      if (on)
+          write(msg.get());
    }
-   
-   public void show(int psn, String msg) 
-   // Pre:  0 <= psn < FlagNum AND
-   //       psn is a registration number sent from 
-   //       an instance of a subclass of Debug
+
+   public void flush()
+   // Post: if sink is Flushable it has been flushed
+   {
+      if (sink instanceof Flushable)
+         synchronized (sink) {
+            try { ((Flushable)sink).flush(); }
+            catch (IOException e) { }  // nothing useful can be done
+         }
+   }
+
+   // Helpers
+
+   protected void write(String msg)
+   // Post: msg and an end of line are written to sink
    {
-      if (flags.get(psn) )
-          System.out.println(msg);
+      synchronized (sink) {
+          try { sink.append(msg).append('\n'); }
+          catch (IOException e) { }  // a lost debug message is not an error
+      }
    }
 }
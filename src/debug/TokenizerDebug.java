@@ -5,20 +5,27 @@ This class is a subclass of Debug (in this package) -- read the description with
 
 This class implements a mechanism for displaying debugging information.  The display of the information is controlled by the appearance of 't' in the string of commandline arguments for the application.
 
-Read the documentation in Debug.java to see how calls to 'Debug.show' control display of messages. 
+Read the documentation in Debug.java to see how calls to 'show' control display of messages.
 
-STATE: 
+STATE:
 
-When instantiated the constructor registers with the Debug class and saves its registration number in 'regPsn'.  
+The flag and the sink are held by Debug.  The constant OFF is the object used by a Tokenizer which is given no other: its flag is off, so it never writes, and since it cannot change it may be shared by every Tokenizer.
 
 INTERFACE:
 
-An instantiated TokenizerDebug object can be used to specify the display of debug information -- implemented as a call to 'show' plus a string message. 
+An instantiated TokenizerDebug object can be used to specify the display of debug information -- implemented as a call to 'show' plus a string message.
+
+    public static final TokenizerDebug OFF;
 
     // Constructor
-    public TokenizerDebug() 
-    // Post: regPsn == registration value returned by registerObject AND
-    //       regPsn >= 0
+    public TokenizerDebug(String commandLine, Appendable sink)
+    // Post: isOn() == ( commandLine.indexOf('t') != -1 ) AND
+    //       messages are written to sink
+
+    public void show(String msg, char ch)
+    // Post: if isOn() the message and ch are written to the debug sink
+
+The other methods are inherited from Debug.
 
 
 @author J. Mead -- August '09
@@ -28,24 +35,21 @@ An instantiated TokenizerDebug object can be used to specify the display of debu
 public class TokenizerDebug extends Debug {
 
     // State
-    
-    private int regPsn;
-    
+
+    public static final TokenizerDebug OFF = new TokenizerDebug("", System.out);
+
     // Constructor
-    
-    public TokenizerDebug() 
-    // Post: regPsn == registration value returned by registerObject AND
-    //       regPsn >= 0
-    {
-       regPsn = registerObject('t'); 
-    }
 
-    public void show(String msg) {
-        show(regPsn, msg);
+    public TokenizerDebug(String commandLine, Appendable sink)
+    // Post: isOn() == ( commandLine.indexOf('t') != -1 ) AND
+    //       messages are written to sink
+    {
+       super('t', commandLine, sink);
     }
 
     public void show(String msg, char ch) {
-        show(regPsn, msg + "(`" + ch + "')");
+        if (isOn())
+            write(msg + "(`" + ch + "')");
     }
 
 }
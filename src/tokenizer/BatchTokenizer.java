@@ -0,0 +1,255 @@
+package tokenizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+
+DESCRIPTION:
+
+This class tokenizes many files in one run, so that the cost of starting a JVM is paid once for a whole batch rather than once per file.  The files are tokenized concurrently on a fixed pool of 'concurrency' threads -- the bound on the files being read at once -- and the results are handed to a Consumer in the order the files were given, each as soon as it and all the files before it are done.  At most 'window' files are submitted ahead of the one the consumer is waiting for, so the tokens held in memory stay bounded however long the list of files is.
+
+Each file is scanned by a Tokenizer taken from a TokenizerPool shared by the threads of the run and given back when the file is done, so a run makes no more Tokenizers than it has threads, whatever the number of files.
+
+A file which cannot be read, or whose scan fails, gives a Result holding the exception rather than tokens; the rest of the batch goes on.  The run returns a Summary of the whole batch: the number of files and failures, the tokens and bytes scanned, and the time taken.
+
+STATE:
+
+    private int concurrency;  // number of files tokenized at once
+    private int window;       // number of files submitted ahead of the
+                              // one whose result is next
+    private TokenizerMetrics metrics;  // given to every Tokenizer, or null
+
+INTERFACE:
+
+    public BatchTokenizer(int concurrency)
+    // Pre:  concurrency > 0
+    // Post: this.concurrency == concurrency AND window == 4 * concurrency
+
+    public BatchTokenizer()
+    // Post: as above with one thread per available processor
+
+    public void setMetrics(TokenizerMetrics metrics)
+    // Pre:  metrics is thread safe, or null
+    // Post: every Tokenizer of a later run reports to metrics
+
+    public Summary run(List<Path> files, Consumer<Result> out)
+        throws InterruptedException
+    // Post: out has been given a Result for each file, in the order of
+    //       files AND return the Summary of the batch
+
+    public static Result tokenize(Path file)
+    // Post: return the tokens of file, ending with EOF_T, or the
+    //       exception which stopped its scan
+
+    public static Result tokenize(Path file, TokenizerMetrics metrics)
+    // Post: as above, with the scan reported to metrics unless it is
+    //       null
+
+A Result has getPath, getTokens, getFailure (null for a success), getBytes and getNanos; a Summary has getFiles, getFailed, getTokens, getBytes and getNanos, and its toString gives the throughput of the batch.
+
+HELPER METHODS:
+
+    private static Result tokenize(Path file, TokenizerMetrics metrics,
+                                   TokenizerPool tokenizers)
+    // Post: as for tokenize, with the Tokenizer taken from tokenizers,
+    //       and given back, unless it is null
+
+CLASS INVARIANT:
+
+    concurrency > 0 AND window >= concurrency
+
+*/
+
+public class BatchTokenizer {
+
+    // State
+
+    private final int concurrency;  // number of files tokenized at once
+    private final int window;       // files submitted ahead of the next
+    private TokenizerMetrics metrics = null;  // given to every Tokenizer
+
+    // Constructors
+
+    public BatchTokenizer(int concurrency)
+    // Pre:  concurrency > 0
+    // Post: this.concurrency == concurrency AND window == 4 * concurrency
+    {
+        this.concurrency = concurrency;
+        this.window = 4 * concurrency;
+    }
+
+    public BatchTokenizer()
+    // Post: as above with one thread per available processor
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Interface -- public methods
+
+    public void setMetrics(TokenizerMetrics metrics)
+    // Pre:  metrics is thread safe, or null
+    // Post: every Tokenizer of a later run reports to metrics
+    {
+        this.metrics = metrics;
+    }
+
+    public Summary run(List<Path> files, Consumer<Result> out) throws InterruptedException
+    // Post: out has been given a Result for each file, in the order of
+    //       files AND return the Summary of the batch
+    {
+        long start = System.nanoTime();
+        int failed = 0;
+        long tokens = 0, bytes = 0;
+
+        TokenizerPool tokenizers = new TokenizerPool(concurrency);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "pdef-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            ArrayDeque<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+            int next = 0;
+            while (next != files.size() || !pending.isEmpty()) {
+                while (next != files.size() && pending.size() != window) {
+                    Path file = files.get(next++);
+                    TokenizerMetrics m = metrics;
+                    pending.add(pool.submit(() -> tokenize(file, m, tokenizers)));
+                }
+                Result r;
+                try {
+                    r = pending.remove().get();
+                }
+                catch (ExecutionException e) {  // tokenize catches what it can
+                    throw new IllegalStateException(e.getCause());
+                }
+                if (r.getFailure() != null)
+                    failed++;
+                tokens += r.getTokens().size();
+                bytes  += r.getBytes();
+                out.accept(r);
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return new Summary(files.size(), failed, tokens, bytes, System.nanoTime() - start);
+    }
+
+    public static Result tokenize(Path file)
+    // Post: return the tokens of file, ending with EOF_T, or the
+    //       exception which stopped its scan
+    {
+        return tokenize(file, null);
+    }
+
+    public static Result tokenize(Path file, TokenizerMetrics metrics)
+    // Post: as above, with the scan reported to metrics unless it is
+    //       null
+    {
+        return tokenize(file, metrics, null);
+    }
+
+    // Helpers
+
+    private static Result tokenize(Path file, TokenizerMetrics metrics, TokenizerPool tokenizers)
+    // Post: as for tokenize, with the Tokenizer taken from tokenizers,
+    //       and given back, unless it is null
+    {
+        long start = System.nanoTime();
+        Tokenizer tins = null;
+        try {
+            long bytes = 0;
+            if (Files.isRegularFile(file))
+                bytes = Files.size(file);
+            tins = (tokenizers != null) ? tokenizers.take(file) : new Tokenizer(file, false);
+            tins.setMetrics(metrics);
+
+            List<Token> tokens = new ArrayList<Token>();
+            Token t;
+            do {
+                t = tins.getNextToken();
+                tokens.add(t);
+            } while (t.getType() != Token.TokenType.EOF_T);
+            return new Result(file, tokens, null, bytes, System.nanoTime() - start);
+        }
+        catch (IOException | RuntimeException e) {
+            return new Result(file, Collections.<Token>emptyList(), e, 0, System.nanoTime() - start);
+        }
+        finally {
+            if (tokenizers != null && tins != null)
+                tokenizers.give(tins);
+        }
+    }
+
+    // The result for one file
+
+    public static class Result {
+
+        private final Path        path;
+        private final List<Token> tokens;   // empty if the scan failed
+        private final Exception   failure;  // null if it succeeded
+        private final long        bytes;    // size of the file
+        private final long        nanos;    // time taken to scan it
+
+        Result(Path path, List<Token> tokens, Exception failure, long bytes, long nanos)
+        {
+            this.path = path;
+            this.tokens = tokens;
+            this.failure = failure;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public Path        getPath()    { return path; }
+        public List<Token> getTokens()  { return tokens; }
+        public Exception   getFailure() { return failure; }
+        public long        getBytes()   { return bytes; }
+        public long        getNanos()   { return nanos; }
+    }
+
+    // The totals for a batch
+
+    public static class Summary {
+
+        private final int  files;    // number of files
+        private final int  failed;   // number of them which failed
+        private final long tokens;   // tokens scanned
+        private final long bytes;    // bytes scanned
+        private final long nanos;    // time taken by the whole batch
+
+        Summary(int files, int failed, long tokens, long bytes, long nanos)
+        {
+            this.files = files;
+            this.failed = failed;
+            this.tokens = tokens;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public int  getFiles()  { return files; }
+        public int  getFailed() { return failed; }
+        public long getTokens() { return tokens; }
+        public long getBytes()  { return bytes; }
+        public long getNanos()  { return nanos; }
+
+        public String toString()
+        {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            return String.format("%d files (%d failed), %d tokens, %d bytes in %.3f s -- %.0f files/s, %.0f tokens/s, %.1f MB/s",
+                                 files, failed, tokens, bytes, seconds,
+                                 files / seconds, tokens / seconds, bytes / seconds / 1e6);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+
+DESCRIPTION:
+
+This class is the ScanBuffer used by the Tokenizer for byte input -- either a ByteBuffer supplied by the caller or a file mapped into memory with FileChannel.map.  The bytes are scanned where they are: an ASCII byte is returned by 'next' as it is, and only when the high bit of a byte is set is a UTF-8 sequence decoded into a character.  Malformed sequences, and characters outside the Basic Multilingual Plane, are returned as the single character REPLACEMENT (which is not a letter or digit, so it becomes an ERROR_T token).
+
+The bytes must be UTF-8 (or ASCII, which is the same thing); Tokenizer decides this before it maps a file, from the charset it is given or else from the byte order mark, which 'charsetOf' reads.  A UTF-8 byte order mark at the start of a file is passed over by 'map' -- and by 'skipBom', for a ByteBuffer which holds the start of an input -- so it is never part of a token, while the offsets of the tokens remain the offsets of their bytes in the file.
+
+Runs of blanks, letters and digits are skipped eight bytes at a time: 'skip' reads a long from the buffer (little endian, so the first byte is the lowest) and computes, with a few word-wide adds and masks and no branch per byte, a word holding the high bit of each byte in the run.  The first byte not in the run is then found with Long.numberOfTrailingZeros.  Each test works on the low seven bits of a byte, where adding a constant cannot carry into the next byte; bytes with the high bit set (non-ASCII) are never in a run.  The last few bytes of a window are tested one at a time.
+
+Since an ASCII byte is never decoded, columns cost nothing for ASCII input: 'extra' counts the continuation bytes of the characters decoded before the cursor, and 'markExtra' those before the mark, and charOffset and markCharOffset subtract them from the offsets.
+
+A single mapping cannot exceed 2 GB, so a file is mapped in windows of at most 'window' bytes.  When the cursor reaches the end of a window the next window is mapped starting at the mark, which keeps the current token in one piece.  The time taken to map each later window is what 'watch' reports as waiting for input; the pages of a window are read from disk only as they are first touched, and no timer here sees that.
+
+STATE:
+
+    private FileChannel channel;  // the mapped file, or null if the input
+                                  // is a single ByteBuffer
+    private long        size;     // length of the input in bytes
+    private ByteBuffer  buf;      // the current window of the input
+    private long        base;     // offset in the input of buf[0]
+    private int         pos;      // index in buf of the next byte
+    private int         last;     // index in buf of the last character
+                                  // returned by next
+    private int         limit;    // number of bytes in buf
+    private int         mark;     // index in buf of the first byte of the
+                                  // current token
+    private long        extra;    // continuation bytes before pos
+    private long        markExtra;  // continuation bytes before mark
+    private TokenizerMetrics metrics;  // told the time of each remapping,
+                                       // or null
+
+INTERFACE:
+
+    ByteScanBuffer(ByteBuffer in)
+    // Post: buf views in.position() .. in.limit()-1 AND pos == mark == 0
+
+    static ByteScanBuffer map(Path path) throws IOException
+    // Pre:  path names a readable regular file in UTF-8
+    // Post: return a ByteScanBuffer over the first window of the file,
+    //       with the cursor past its byte order mark, if any
+
+    static Charset charsetOf(Path path) throws IOException
+    // Pre:  path names a readable regular file
+    // Post: return the charset named by the byte order mark at the start
+    //       of the file -- UTF-16 for either byte order -- or UTF-8 if it
+    //       has none
+
+    ByteScanBuffer skipBom()
+    // Pre:  the cursor is at the start of the buffer
+    // Post: the cursor and mark are past a UTF-8 byte order mark at the
+    //       cursor, if there is one AND return this
+
+The remaining methods are described in ScanBuffer.
+
+HELPER METHODS:
+
+    private int decode(int lead) throws IOException
+    // Pre:  lead is the first byte of a multi-byte character
+    // Post: return the decoded character and advance pos past it
+
+    private static long runBytes(int run, long w)
+    // Post: return the high bit of each byte of w which is in run
+
+    private static long zeroBytes(long w)
+    // Post: return the high bit of each zero byte of w
+
+    private boolean remap() throws IOException
+    // Post: the window starting at the mark is mapped AND return true if
+    //       it holds bytes past the cursor
+
+    private void close() throws IOException
+    // Post: channel is closed -- the last window stays mapped
+
+CLASS INVARIANT:
+
+    0 <= mark <= last <= pos <= limit == buf.limit() AND
+    markExtra <= extra
+
+*/
+
+class ByteScanBuffer extends ScanBuffer {
+
+    // State
+
+    static final char REPLACEMENT = '\uFFFD';
+
+    private static final int window = 1 << 30;   // largest mapping
+
+    private static final long LOWS  = 0x7F7F7F7F7F7F7F7FL;  // low 7 bits
+    private static final long HIGHS = 0x8080808080808080L;  // high bits
+    private static final long BYTES = 0x0101010101010101L;  // 1 per byte
+
+    private FileChannel channel;  // the mapped file, or null
+    private long        size;     // length of the input in bytes
+    private ByteBuffer  buf;      // the current window of the input
+    private long        base  = 0;  // offset in the input of buf[0]
+    private int         pos   = 0;  // index in buf of the next byte
+    private int         last  = 0;  // index in buf of the last character
+                                    // returned by next
+    private int         limit;      // number of bytes in buf
+    private int         mark  = 0;  // index in buf of the first byte of
+                                    // the current token
+    private long        extra = 0;  // continuation bytes before pos
+    private long        markExtra = 0;  // continuation bytes before mark
+    private TokenizerMetrics metrics = null;  // told the time of each
+                                              // remapping, or null
+
+    // Constructors
+
+    ByteScanBuffer(ByteBuffer in)
+    // Post: buf views in.position() .. in.limit()-1 AND pos == mark == 0
+    {
+        this.buf   = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.limit = buf.limit();
+        this.size  = limit;
+    }
+
+    private ByteScanBuffer(FileChannel channel, long size) throws IOException
+    {
+        this(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, window)));
+        this.channel = channel;
+        this.size    = size;
+        if (size <= window)  // mapped in one piece
+            close();
+    }
+
+    static ByteScanBuffer map(Path path) throws IOException
+    // Pre:  path names a readable regular file in UTF-8
+    // Post: return a ByteScanBuffer over the first window of the file,
+    //       with the cursor past its byte order mark, if any
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ByteScanBuffer(channel, channel.size()).skipBom();
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static Charset charsetOf(Path path) throws IOException
+    // Pre:  path names a readable regular file
+    // Post: return the charset named by the byte order mark at the start
+    //       of the file -- UTF-16 for either byte order -- or UTF-8 if it
+    //       has none
+    {
+        ByteBuffer head = ByteBuffer.allocate(2);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (head.hasRemaining() && channel.read(head) > 0)
+                ;
+        }
+        if (head.position() == 2) {
+            int mark = head.getShort(0) & 0xFFFF;
+            if (mark == 0xFEFF || mark == 0xFFFE)
+                return StandardCharsets.UTF_16;  // which reads the mark
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    ByteScanBuffer skipBom()
+    // Pre:  the cursor is at the start of the buffer
+    // Post: the cursor and mark are past a UTF-8 byte order mark at the
+    //       cursor, if there is one AND return this
+    {
+        if (limit - pos >= 3 && (buf.get(pos) & 0xFF) == 0xEF
+                && (buf.get(pos + 1) & 0xFF) == 0xBB && (buf.get(pos + 2) & 0xFF) == 0xBF) {
+            pos += 3;
+            mark = last = pos;
+        }
+        return this;
+    }
+
+    // Interface
+
+    int next() throws IOException
+    {
+        if (pos == limit && !remap())
+            return EOF;
+        last = pos;
+        int b = buf.get(pos++);
+        if (b >= 0)
+            return b;
+        int ch = decode(b & 0xFF);
+        extra += pos - last - 1;
+        return ch;
+    }
+
+    void back()
+    {
+        extra -= pos - last - 1;
+        pos = last;
+    }
+
+    void mark()
+    {
+        mark = pos;
+        markExtra = extra;
+    }
+
+    int markIndex()
+    {
+        return mark;
+    }
+
+    long markOffset()
+    {
+        return base + mark;
+    }
+
+    long offset()
+    {
+        return base + pos;
+    }
+
+    long charOffset()
+    {
+        return base + pos - extra;
+    }
+
+    long markCharOffset()
+    {
+        return base + mark - markExtra;
+    }
+
+    boolean plain(int index, int length)
+    {
+        for (int i = 0; i != length; i++)
+            if (buf.get(index + i) < 0)  // not ASCII
+                return false;
+        return true;
+    }
+
+    public int unitAt(int index)
+    {
+        return buf.get(index) & 0xFF;
+    }
+
+    public String text(int index, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i != length; i++)
+            bytes[i] = buf.get(index + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int skip(int run)
+    {
+        int start = pos;
+        while (limit - pos >= 8) {
+            long miss = ~runBytes(run, buf.getLong(pos)) & HIGHS;
+            if (miss != 0) {
+                pos += Long.numberOfTrailingZeros(miss) >>> 3;
+                return pos - start;
+            }
+            pos += 8;
+        }
+        while (pos != limit && inRun(run, buf.get(pos) & 0xFF))
+            pos++;
+        return pos - start;
+    }
+
+    void watch(TokenizerMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    int encode(int index, int length, byte[] dst, int at)
+    {
+        int start = at;
+        for (int i = 0; i != length; i++) {
+            byte b = buf.get(index + i);
+            if (b < 0)  // not ASCII -- decode, so malformed bytes are not copied
+                return encodeChars(text(index, length), dst, start);
+            dst[at++] = b;
+        }
+        return at;
+    }
+
+    // Helpers
+
+    private static long runBytes(int run, long w)
+    // Post: return the high bit of each byte of w which is in run
+    {
+        switch (run) {
+        case BLANKS:
+            return zeroBytes(w ^ (' ' * BYTES)) | zeroBytes(w ^ ('\t' * BYTES));
+        case LETTERS: {
+            long y = (w | (0x20 * BYTES)) & LOWS;   // folded to lower case
+            return (y + (0x80 - 'a') * BYTES) & ~(y + (0x80 - 'z' - 1) * BYTES) & ~w & HIGHS;
+        }
+        default: {
+            long y = w & LOWS;
+            return (y + (0x80 - '0') * BYTES) & ~(y + (0x80 - '9' - 1) * BYTES) & ~w & HIGHS;
+        }
+        }
+    }
+
+    private static long zeroBytes(long w)
+    // Post: return the high bit of each zero byte of w
+    {
+        return ~(((w & LOWS) + LOWS) | w | LOWS);
+    }
+
+    private int decode(int lead) throws IOException
+    // Pre:  lead is the first byte of a multi-byte character
+    // Post: return the decoded character and advance pos past it
+    {
+        int need, ch;
+        if (lead >= 0xC2 && lead <= 0xDF)      { need = 1; ch = lead & 0x1F; }
+        else if (lead >= 0xE0 && lead <= 0xEF) { need = 2; ch = lead & 0x0F; }
+        else if (lead >= 0xF0 && lead <= 0xF4) { need = 3; ch = lead & 0x07; }
+        else
+            return REPLACEMENT;
+
+        if (limit - pos < need)
+            remap();
+        for (int i = 0; i != need; i++) {
+            if (pos == limit)
+                return REPLACEMENT;   // truncated at end of input
+            int b = buf.get(pos);
+            if ((b & 0xC0) != 0x80)
+                return REPLACEMENT;   // the byte starts the next character
+            ch = (ch << 6) | (b & 0x3F);
+            pos++;
+        }
+
+        if (ch > 0xFFFF || Character.isSurrogate((char)ch) || ch < (need == 2 ? 0x800 : 0x80))
+            return REPLACEMENT;
+        return ch;
+    }
+
+    private boolean remap() throws IOException
+    // Post: the window starting at the mark is mapped AND return true if
+    //       it holds bytes past the cursor
+    {
+        if (channel == null || base + limit == size)
+            return false;
+
+        long start = base + mark;
+        long len   = Math.min(size - start, window);
+        if (start == base)  // the mark is already at the start of buf
+            throw new IOException("token at offset " + start + " is longer than " + window + " bytes");
+
+        long started = (metrics != null) ? System.nanoTime() : 0;
+        buf    = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+        if (metrics != null)
+            metrics.waited(System.nanoTime() - started);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        pos   -= mark;
+        last  -= mark;
+        mark   = 0;
+        base   = start;
+        limit  = (int)len;
+        if (base + limit == size)  // the last window
+            close();
+        return pos < limit;
+    }
+
+    private void close() throws IOException
+    // Post: channel is closed -- the last window stays mapped
+    {
+        channel.close();
+    }
+}
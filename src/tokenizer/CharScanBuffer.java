@@ -0,0 +1,251 @@
+package tokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+
+DESCRIPTION:
+
+This class is the ScanBuffer used by the Tokenizer for character input.  Rather than asking the underlying Reader for one character at a time (with a mark/reset pair around every read) characters are pulled from the Reader in large blocks into the array 'buf' and handed out by advancing the cursor 'pos'.  Lookahead is undone simply by moving the cursor back.
+
+The characters of the token currently being scanned are kept in the buffer: when a refill is needed the characters from 'mark' (the start of the current token) onward are shifted to the front of 'buf', and the array is doubled if the token alone fills it.
+
+A CharScanBuffer may be reset to read from another Reader, so that a Tokenizer used for many inputs allocates its buffer once.  It does not close a Reader it is given, except by close, which the Tokenizer calls for a Reader it opened itself.
+
+The Reader does the decoding, in whatever charset it was made with; a byte order mark which it leaves at the start of the input (as a UTF-8 Reader does) is dropped by the first fill, so it is never part of a token and the offsets count the characters after it.
+
+STATE:
+
+    private Reader  in;        // the input stream, or null
+    private char[]  buf;       // characters read from in but not yet
+                               // discarded
+    private int     pos;       // index in buf of the next character
+    private int     limit;     // number of valid characters in buf
+    private int     mark;      // index in buf of the first character
+                               // of the current token
+    private long    base;      // offset in the input of buf[0]
+    private boolean eof;       // true once in has been exhausted
+    private boolean begun;     // true once in has been read
+    private TokenizerMetrics metrics;  // told the time of each read, or
+                                       // null
+
+INTERFACE:
+
+    CharScanBuffer(Reader in, int size)
+    // Pre:  size > 0
+    // Post: this.in == in AND buf.length == size AND pos == limit == 0
+
+    CharScanBuffer reset(Reader in)
+    // Post: this.in == in AND pos == limit == 0 AND the offset is 0 AND
+    //       buf is kept -- if in is null the input is empty AND
+    //       return this
+
+    void close() throws IOException
+    // Post: in is closed AND in == null AND no more characters are read
+    //       -- those already in buf are kept
+
+    int next() throws IOException
+    // Post: return the character at the cursor and advance the cursor --
+    //       Except if the input is exhausted return EOF
+
+    void back()
+    // Pre:  the last call to next did not return EOF
+    // Post: the cursor is moved back one character
+
+    void mark()
+    // Post: mark == pos
+
+    long offset()
+    // Post: return the offset in the input of the cursor
+
+    int markIndex()
+    // Post: return mark
+
+    long markOffset()
+    // Post: return the offset in the input of the character at mark
+
+    public int unitAt(int index)
+    // Post: return buf[index]
+
+    public String text(int index, int length)
+    // Post: return buf[index .. index+length-1] as a new String
+
+HELPER METHODS:
+
+    private boolean fill() throws IOException
+    // Pre:  pos == limit
+    // Post: return true if more characters were read into buf -- not
+    //       counting a byte order mark at the start of the input
+
+CLASS INVARIANT:
+
+    0 <= mark <= pos <= limit <= buf.length
+
+*/
+
+class CharScanBuffer extends ScanBuffer {
+
+    // State
+
+    private Reader  in;          // the input stream, or null
+    private char[]  buf;         // characters read from in but not yet
+                                 // discarded
+    private int     pos   = 0;   // index in buf of the next character
+    private int     limit = 0;   // number of valid characters in buf
+    private int     mark  = 0;   // index in buf of the first character
+                                 // of the current token
+    private long    base  = 0;   // offset in the input of buf[0]
+    private boolean eof   = false;  // true once in has been exhausted
+    private boolean begun   = false;  // true once in has been read
+    private TokenizerMetrics metrics = null;  // told the time of each
+                                              // read, or null
+
+    // Constructor
+
+    CharScanBuffer(Reader in, int size)
+    // Pre:  size > 0
+    // Post: this.in == in AND buf.length == size AND pos == limit == 0
+    {
+        this.buf = new char[size];
+        reset(in);
+    }
+
+    CharScanBuffer reset(Reader in)
+    // Post: this.in == in AND pos == limit == 0 AND the offset is 0 AND
+    //       buf is kept -- if in is null the input is empty AND
+    //       return this
+    {
+        this.in = in;
+        pos = limit = mark = 0;
+        base  = 0;
+        eof   = in == null;
+        begun = false;
+        return this;
+    }
+
+    void close() throws IOException
+    // Post: in is closed AND in == null AND no more characters are read
+    //       -- those already in buf are kept
+    {
+        Reader r = in;
+        in  = null;
+        eof = true;
+        if (r != null)
+            r.close();
+    }
+
+    // Interface
+
+    int next() throws IOException
+    // Post: return the character at the cursor and advance the cursor --
+    //       Except if the input is exhausted return EOF
+    {
+        if (pos == limit && !fill())
+            return EOF;
+        return buf[pos++];
+    }
+
+    void back()
+    // Pre:  the last call to next did not return EOF
+    // Post: the cursor is moved back one character
+    {
+        pos--;
+    }
+
+    void mark()
+    // Post: mark == pos
+    {
+        mark = pos;
+    }
+
+    long offset()
+    // Post: return the offset in the input of the cursor
+    {
+        return base + pos;
+    }
+
+    int markIndex()
+    // Post: return mark
+    {
+        return mark;
+    }
+
+    long markOffset()
+    // Post: return the offset in the input of the character at mark
+    {
+        return base + mark;
+    }
+
+    public int unitAt(int index)
+    // Post: return buf[index]
+    {
+        return buf[index];
+    }
+
+    public String text(int index, int length)
+    // Post: return buf[index .. index+length-1] as a new String
+    {
+        return new String(buf, index, length);
+    }
+
+    int skip(int run)
+    // Post: pos is moved past the characters of run which follow it in
+    //       buf AND return their number
+    {
+        int start = pos;
+        while (pos != limit && inRun(run, buf[pos]))
+            pos++;
+        return pos - start;
+    }
+
+    void watch(TokenizerMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    // Helpers
+
+    private boolean fill() throws IOException
+    // Pre:  pos == limit
+    // Post: return true if more characters were read into buf -- not
+    //       counting a byte order mark at the start of the input
+    {
+        if (eof)
+            return false;
+
+        if (mark > 0) {  // discard everything before the current token
+            System.arraycopy(buf, mark, buf, 0, limit - mark);
+            base  += mark;
+            limit -= mark;
+            pos   -= mark;
+            mark   = 0;
+        }
+        if (limit == buf.length) {  // the current token fills buf
+            char[] bigger = new char[buf.length * 2];
+            System.arraycopy(buf, 0, bigger, 0, limit);
+            buf = bigger;
+        }
+
+        long started = (metrics != null) ? System.nanoTime() : 0;
+        int n = in.read(buf, limit, buf.length - limit);
+        while (n == 0)
+            n = in.read(buf, limit, buf.length - limit);
+        if (metrics != null)
+            metrics.waited(System.nanoTime() - started);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        if (!begun) {
+            begun = true;
+            if (buf[limit] == BOM) {
+                System.arraycopy(buf, limit + 1, buf, limit, --n);
+                if (n == 0)
+                    return fill();
+            }
+        }
+        limit += n;
+        return true;
+    }
+}
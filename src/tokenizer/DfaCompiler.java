@@ -0,0 +1,454 @@
+package tokenizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+
+DESCRIPTION:
+
+This class compiles a list of regular expressions -- one per rule of a lexical spec -- into a minimized deterministic finite automaton, from which ScanTable builds the transition table of the Tokenizer.  It runs once, when ScanTable is initialized, and keeps nothing afterwards.
+
+The expressions are over 129 symbols: the ASCII characters 0 .. 127, and OTHER, which stands for every character above 127 that a set names only by leaving it out (ScanTable scans a letter above 127 as 'a', and every other character above 127, a digit included, as OTHER).  The syntax is
+
+     ( e )          grouping
+     e | e          alternation
+     e*  e+  e?     repetition
+     [abc] [a-z]    a set of characters, [^...] its complement (OTHER
+                    included)
+     \c             the character c -- \t \n \r and \0 are a tab, end of
+                    line, carriage return and NUL
+     c              any other character stands for itself, '.' included
+
+and the compilation goes in the usual steps:
+
+     1. each expression is parsed into a Thompson NFA, whose edges are
+        labelled with sets of symbols
+     2. the symbols are partitioned into classes -- two symbols are in
+        one class if every set, and every set of 'separate', holds both
+        or neither -- so the automaton has one column per class rather
+        than per character
+     3. the subset construction makes a DFA from the NFAs of all the
+        rules at once; a DFA state accepts the first rule, in the order
+        given, any of whose NFAs accept there
+     4. the states are minimized by partition refinement (Moore's
+        algorithm), starting from the partition by accepted rule
+
+STATE:
+
+    int     numClasses;   // number of character classes
+    byte[]  symbolClass;  // class of each symbol
+    int     numStates;    // number of DFA states, the dead one left out
+    int     start;        // the start state
+    int[][] next;         // next[s][c] is the state s goes to on class
+                          // c, or -1 for the dead state
+    int[]   accept;       // accept[s] is the rule accepted in s, or -1
+
+and while the NFA is built, the lists 'label', 'to' and 'eps' of its nodes.
+
+INTERFACE:
+
+    static final int OTHER = 128, SYMBOLS = 129;
+
+    DfaCompiler(String[] patterns, int maxStates, String... separate)
+    // Pre:  each pattern is a well formed expression
+    // Post: the state above describes the minimized DFA of patterns --
+    //       Except throw IllegalArgumentException at a malformed pattern,
+    //       or if the DFA has more than maxStates states, counting all
+    //       those with no transitions out as one
+
+    int representative(int cls)
+    // Post: return the least symbol of class cls
+
+HELPER METHODS:
+
+    private int[] alternation(String p, int[] at)
+    private int[] concatenation(String p, int[] at)
+    private int[] repetition(String p, int[] at)
+    private int[] atom(String p, int[] at)
+    private BitSet set(String p, int[] at)
+    private int escape(String p, int[] at)
+    // Pre:  at[0] is the index in p of the next character to be parsed
+    // Post: return the fragment (first node, last node) of the NFA for
+    //       the expression there -- or its set or character -- AND at[0]
+    //       is past it
+
+    private int node()
+    // Post: return a new node of the NFA, without edges
+
+    private void link(int from, int to)
+    // Post: there is an epsilon edge from from to to
+
+    private void closure(BitSet nodes)
+    // Post: nodes holds every node reachable from it by epsilon edges
+
+    private void classify(BitSet[] sets)
+    // Post: numClasses and symbolClass partition the symbols by sets
+
+    private void minimize(List<int[]> moves, List<Integer> accepted, int first)
+    // Post: numStates, start, next and accept describe the minimized
+    //       form of the DFA given by moves and accepted, starting at
+    //       first
+
+CLASS INVARIANT:
+
+    0 <= start < numStates AND each next[s][c] is -1 or a state
+
+*/
+
+final class DfaCompiler {
+
+    // State
+
+    static final int OTHER   = 128;  // any character above 127
+    static final int SYMBOLS = 129;
+
+    int     numClasses;
+    byte[]  symbolClass = new byte[SYMBOLS];
+    int     numStates;
+    int     start;
+    int[][] next;
+    int[]   accept;
+
+    private final List<BitSet>  label = new ArrayList<BitSet>();   // symbols of the labelled edge, or null
+    private final List<Integer> to    = new ArrayList<Integer>();  // target of the labelled edge
+    private final List<int[]>   eps   = new ArrayList<int[]>();    // targets of the epsilon edges
+
+    // Constructor
+
+    DfaCompiler(String[] patterns, int maxStates, String... separate)
+    // Pre:  each pattern is a well formed expression
+    // Post: the state above describes the minimized DFA of patterns --
+    //       Except throw IllegalArgumentException at a malformed pattern,
+    //       or if the DFA has more than maxStates states, counting all
+    //       those with no transitions out as one
+    {
+        // 1. the NFA, with a new node leading to the NFA of each rule
+        int begin = node();
+        int[] last = new int[patterns.length];
+        for (int r = 0; r != patterns.length; r++) {
+            int[] at = { 0 };
+            int[] f = alternation(patterns[r], at);
+            if (at[0] != patterns[r].length())
+                throw new IllegalArgumentException("unbalanced ')' in pattern " + patterns[r]);
+            link(begin, f[0]);
+            last[r] = f[1];
+        }
+
+        // 2. the classes
+        List<BitSet> sets = new ArrayList<BitSet>();
+        for (BitSet s : label)
+            if (s != null)
+                sets.add(s);
+        for (String s : separate) {
+            BitSet b = new BitSet(SYMBOLS);
+            s.chars().forEach(b::set);
+            sets.add(b);
+        }
+        classify(sets.toArray(new BitSet[0]));
+        List<BitSet> classLabel = new ArrayList<BitSet>();  // label by class
+        for (BitSet s : label) {
+            BitSet c = null;
+            if (s != null) {
+                c = new BitSet(numClasses);
+                for (int k = 0; k != numClasses; k++)
+                    if (s.get(representative(k)))
+                        c.set(k);
+            }
+            classLabel.add(c);
+        }
+
+        // 3. the subset construction
+        Map<BitSet,Integer> found = new HashMap<BitSet,Integer>();
+        List<BitSet>  subsets  = new ArrayList<BitSet>();
+        List<int[]>   moves    = new ArrayList<int[]>();
+        List<Integer> accepted = new ArrayList<Integer>();
+        BitSet first = new BitSet();
+        first.set(begin);
+        closure(first);
+        found.put(first, 0);
+        subsets.add(first);
+        for (int d = 0; d != subsets.size(); d++) {
+            BitSet from = subsets.get(d);
+            int rule = -1;
+            for (int r = patterns.length - 1; r >= 0; r--)
+                if (from.get(last[r]))
+                    rule = r;
+            accepted.add(rule);
+            int[] move = new int[numClasses];
+            for (int c = 0; c != numClasses; c++) {
+                BitSet target = new BitSet();
+                for (int n = from.nextSetBit(0); n >= 0; n = from.nextSetBit(n + 1))
+                    if (classLabel.get(n) != null && classLabel.get(n).get(c))
+                        target.set(to.get(n));
+                if (target.isEmpty()) {
+                    move[c] = -1;
+                    continue;
+                }
+                closure(target);
+                Integer t = found.get(target);
+                if (t == null) {
+                    t = subsets.size();
+                    found.put(target, t);
+                    subsets.add(target);
+                }
+                move[c] = t;
+            }
+            moves.add(move);
+        }
+
+        // 4. the minimization
+        minimize(moves, accepted, 0);
+
+        // 5. the bound -- a table has a single state for every state
+        // with no transitions out, in which a token is done
+        int states = 1;
+        for (int s = 0; s != numStates; s++)
+            for (int t : next[s])
+                if (t >= 0) {
+                    states++;
+                    break;
+                }
+        if (states > maxStates)
+            throw new IllegalArgumentException("the patterns need " + states + " states, more than the "
+                                               + maxStates + " a table can hold");
+    }
+
+    // Interface
+
+    int representative(int cls)
+    // Post: return the least symbol of class cls
+    {
+        for (int s = 0; s != SYMBOLS; s++)
+            if (symbolClass[s] == cls)
+                return s;
+        throw new IllegalArgumentException("no class " + cls);
+    }
+
+    // Helpers -- the parser
+
+    private int[] alternation(String p, int[] at)
+    // Post: return the fragment for the alternation at at[0]
+    {
+        int[] f = concatenation(p, at);
+        if (at[0] == p.length() || p.charAt(at[0]) != '|')
+            return f;
+        int s = node(), e = node();
+        link(s, f[0]);
+        link(f[1], e);
+        while (at[0] != p.length() && p.charAt(at[0]) == '|') {
+            at[0]++;
+            int[] g = concatenation(p, at);
+            link(s, g[0]);
+            link(g[1], e);
+        }
+        return new int[] { s, e };
+    }
+
+    private int[] concatenation(String p, int[] at)
+    // Post: return the fragment for the concatenation at at[0]
+    {
+        int s = node();
+        int[] f = { s, s };
+        while (at[0] != p.length() && p.charAt(at[0]) != '|' && p.charAt(at[0]) != ')') {
+            int[] g = repetition(p, at);
+            link(f[1], g[0]);
+            f[1] = g[1];
+        }
+        return f;
+    }
+
+    private int[] repetition(String p, int[] at)
+    // Post: return the fragment for the repeated atom at at[0]
+    {
+        int[] f = atom(p, at);
+        while (at[0] != p.length() && "*+?".indexOf(p.charAt(at[0])) != -1) {
+            char op = p.charAt(at[0]++);
+            int s = node(), e = node();
+            link(s, f[0]);
+            if (op != '+')
+                link(s, e);  // none
+            link(f[1], e);
+            if (op != '?')
+                link(f[1], f[0]);  // again
+            f = new int[] { s, e };
+        }
+        return f;
+    }
+
+    private int[] atom(String p, int[] at)
+    // Post: return the fragment for the atom at at[0]
+    {
+        char ch = p.charAt(at[0]);
+        if (ch == '(') {
+            at[0]++;
+            int[] f = alternation(p, at);
+            if (at[0] == p.length())
+                throw new IllegalArgumentException("missing ')' in pattern " + p);
+            at[0]++;
+            return f;
+        }
+        if ("*+?)]".indexOf(ch) != -1)
+            throw new IllegalArgumentException("unexpected '" + ch + "' in pattern " + p);
+
+        BitSet symbols;
+        if (ch == '[')
+            symbols = set(p, at);
+        else {
+            symbols = new BitSet(SYMBOLS);
+            symbols.set(escape(p, at));
+        }
+        int s = node(), e = node();
+        label.set(s, symbols);
+        to.set(s, e);
+        return new int[] { s, e };
+    }
+
+    private BitSet set(String p, int[] at)
+    // Pre:  p.charAt(at[0]) == '['
+    // Post: return the symbols of the set at at[0]
+    {
+        BitSet symbols = new BitSet(SYMBOLS);
+        boolean negated = ++at[0] != p.length() && p.charAt(at[0]) == '^';
+        if (negated)
+            at[0]++;
+        while (at[0] != p.length() && p.charAt(at[0]) != ']') {
+            int lo = escape(p, at), hi = lo;
+            if (at[0] + 1 < p.length() && p.charAt(at[0]) == '-' && p.charAt(at[0] + 1) != ']') {
+                at[0]++;
+                hi = escape(p, at);
+            }
+            symbols.set(lo, hi + 1);
+        }
+        if (at[0] == p.length())
+            throw new IllegalArgumentException("missing ']' in pattern " + p);
+        at[0]++;
+        if (negated)
+            symbols.flip(0, SYMBOLS);
+        return symbols;
+    }
+
+    private int escape(String p, int[] at)
+    // Post: return the character at at[0], or the one escaped there
+    {
+        char ch = p.charAt(at[0]++);
+        if (ch == '\\') {
+            if (at[0] == p.length())
+                throw new IllegalArgumentException("trailing '\\' in pattern " + p);
+            ch = p.charAt(at[0]++);
+            switch (ch) {
+            case 't': ch = '\t'; break;
+            case 'n': ch = '\n'; break;
+            case 'r': ch = '\r'; break;
+            case '0': ch = '\0'; break;
+            }
+        }
+        if (ch >= 128)
+            throw new IllegalArgumentException("non-ASCII character in pattern " + p);
+        return ch;
+    }
+
+    // Helpers -- the automata
+
+    private int node()
+    // Post: return a new node of the NFA, without edges
+    {
+        label.add(null);
+        to.add(-1);
+        eps.add(new int[0]);
+        return label.size() - 1;
+    }
+
+    private void link(int from, int to)
+    // Post: there is an epsilon edge from from to to
+    {
+        int[] e = eps.get(from);
+        e = Arrays.copyOf(e, e.length + 1);
+        e[e.length - 1] = to;
+        eps.set(from, e);
+    }
+
+    private void closure(BitSet nodes)
+    // Post: nodes holds every node reachable from it by epsilon edges
+    {
+        ArrayDeque<Integer> work = new ArrayDeque<Integer>();
+        for (int n = nodes.nextSetBit(0); n >= 0; n = nodes.nextSetBit(n + 1))
+            work.push(n);
+        while (!work.isEmpty())
+            for (int t : eps.get(work.pop()))
+                if (!nodes.get(t)) {
+                    nodes.set(t);
+                    work.push(t);
+                }
+    }
+
+    private void classify(BitSet[] sets)
+    // Post: numClasses and symbolClass partition the symbols by sets
+    {
+        Map<BitSet,Integer> classes = new HashMap<BitSet,Integer>();
+        for (int s = 0; s != SYMBOLS; s++) {
+            BitSet in = new BitSet(sets.length);  // the sets holding s
+            for (int k = 0; k != sets.length; k++)
+                if (sets[k].get(s))
+                    in.set(k);
+            Integer c = classes.get(in);
+            if (c == null) {
+                c = classes.size();
+                classes.put(in, c);
+            }
+            symbolClass[s] = (byte)(int)c;
+        }
+        numClasses = classes.size();
+    }
+
+    private void minimize(List<int[]> moves, List<Integer> accepted, int first)
+    // Post: numStates, start, next and accept describe the minimized
+    //       form of the DFA given by moves and accepted, starting at
+    //       first
+    {
+        int n = moves.size();
+        int[] block = new int[n];
+        int blocks = 0;
+        for (boolean changed = true; changed; ) {
+            Map<List<Integer>,Integer> split = new HashMap<List<Integer>,Integer>();
+            int[] refined = new int[n];
+            for (int d = 0; d != n; d++) {
+                List<Integer> key = new ArrayList<Integer>();
+                key.add(blocks == 0 ? accepted.get(d) : block[d]);
+                if (blocks != 0)
+                    for (int t : moves.get(d))
+                        key.add(t < 0 ? -1 : block[t]);
+                Integer b = split.get(key);
+                if (b == null) {
+                    b = split.size();
+                    split.put(key, b);
+                }
+                refined[d] = b;
+            }
+            changed = blocks == 0 || split.size() != blocks;
+            blocks = split.size();
+            block = refined;
+        }
+
+        numStates = blocks;
+        start = block[first];
+        next = new int[blocks][];
+        accept = new int[blocks];
+        for (int d = 0; d != n; d++) {
+            int b = block[d];
+            if (next[b] != null)
+                continue;
+            next[b] = new int[numClasses];
+            for (int c = 0; c != numClasses; c++) {
+                int t = moves.get(d)[c];
+                next[b][c] = (t < 0) ? -1 : block[t];
+            }
+            accept[b] = accepted.get(d);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class describes one malformed token found by a Tokenizer in the RECOVER or FAIL error mode: where it starts (offset, line and column, counted as for a Token), what the scanner expected there, and the offending text itself -- cut to at most MAX_TEXT units, since in RECOVER mode an error runs on to the next delimiter and may be long.
+
+A Diagnostic never changes once made.
+
+STATE:
+
+    private long   offset;    // offset in the input of the token
+    private int    line;      // line of its first unit
+    private int    column;    // column of its first unit
+    private String expected;  // what the scanner expected, in words
+    private String text;      // the text of the token
+
+INTERFACE:
+
+    public static final int MAX_TEXT;
+
+    Diagnostic(long offset, int line, int column, String expected,
+               String text)
+    // Post: the fields are the arguments
+
+    public long   getOffset()
+    public int    getLine()
+    public int    getColumn()
+    public String getExpected()
+    public String getText()
+    // Post: return the field
+
+    public String toString()
+    // Post: return the position, expected class and text on one line
+
+HELPER METHODS:
+
+There are no helper methods.
+
+CLASS INVARIANT:
+
+    text.length() <= MAX_TEXT
+
+*/
+
+public final class Diagnostic {
+
+    // State
+
+    public static final int MAX_TEXT = 80;
+
+    private final long   offset;
+    private final int    line;
+    private final int    column;
+    private final String expected;
+    private final String text;
+
+    // Constructor
+
+    Diagnostic(long offset, int line, int column, String expected, String text)
+    // Post: the fields are the arguments
+    {
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+        this.expected = expected;
+        this.text = text;
+    }
+
+    // Interface -- public methods
+
+    public long   getOffset()   { return offset; }
+    public int    getLine()     { return line; }
+    public int    getColumn()   { return column; }
+    public String getExpected() { return expected; }
+    public String getText()     { return text; }
+    // Post: return the field
+
+    public String toString()
+    // Post: return the position, expected class and text on one line
+    {
+        return "line " + line + ", column " + column + " (offset " + offset + "): expected "
+               + expected + ", found `" + text + "'";
+    }
+}
@@ -0,0 +1,481 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class keeps the tokens of a text which is edited in place -- the document of an editor, say -- and brings them up to date after each edit by scanning again only the part of the text the edit can have changed.
+
+The scan of a token reads the units from the cursor left by the previous scan up to 'scanned', the cursor it leaves (plus at most one unit it read and put back).  An edit at offset therefore changes no token before r, the first token whose scan reached offset.  The Tokenizer is restarted at the first unit of token r-1 -- where it was once in START_S with the same text ahead of it, so the scan of that token and of the blanks after it comes out as before -- and the new tokens replace the old ones until a new token starts at the same place, in the shifted text, as an old token past the end of the edit.  From a token start onward the scanner depends only on the text ahead of it, which the edit did not touch, so all the old tokens from that one on are still right, apart from their positions.
+
+To make the cost of an edit depend on the size of the edit rather than the size of the text, both the text and the tokens are kept in gap buffers with the gap at the last edit, as editors usually do:
+
+    text        the characters, with an unused gap gapStart .. gapEnd-1
+    tokens      parallel arrays of type, name, start, scanned, line and
+                column, with an unused gap tokenGap .. tokenEnd-1
+
+The tokens before the gap hold their start, scanned and line as they are, but those after it hold them relative to the end of the text (start - length(), line - lines), so an edit changes the positions of all the tokens after it without touching them.  Only the columns of the tokens on the line where the edit ends are fixed one by one.  Moving a gap costs the distance it moves, which is small for the nearby edits of a person typing.
+
+STATE:
+
+    private char[]            text;      // the characters and the gap
+    private int               gapStart;  // first unit of the text gap
+    private int               gapEnd;    // first unit after the gap
+    private int               lines;     // number of lines of the text
+
+    private Token.TokenType[] type;      // the token arrays
+    private String[]          name;
+    private int[]             start;
+    private int[]             scanned;
+    private int[]             line;
+    private int[]             column;
+    private int               tokenGap;  // first entry of the token gap
+    private int               tokenEnd;  // first entry after the gap
+
+    private TextBuffer        input;     // view of text for the Tokenizer
+    private Tokenizer         scanner;   // the Tokenizer over input
+
+INTERFACE:
+
+    public IncrementalTokenizer(CharSequence text)
+    // Post: the text is text AND the tokens are its tokens, ending with
+    //       EOF_T
+
+    public int length()
+    // Post: return the number of characters of the text
+
+    public int size()
+    // Post: return the number of tokens
+
+    public Token get(int i)
+    // Pre:  0 <= i < size()
+    // Post: return a new Token holding token i
+
+    public String getText()
+    // Post: return the text as a new String
+
+    public Change edit(int offset, int removed, CharSequence inserted)
+    // Pre:  0 <= offset AND 0 <= removed AND offset + removed <= length()
+    // Post: the characters offset .. offset+removed-1 of the text are
+    //       replaced by inserted AND the tokens are those of the new text
+    //       AND return the tokens replaced -- Except throw
+    //       IndexOutOfBoundsException if the range is not in the text
+
+The result of an edit is a Change: the tokens getRemoved() tokens from getFirst() on were replaced by the getInserted() tokens from getFirst() on.
+
+HELPER METHODS:
+
+    private void rescan(int first, int at, int atLine, int atLineStart,
+                        int editEnd)
+    // Pre:  the token gap is at first AND at is the start of the text or
+    //       of token first AND atLine, atLineStart locate at
+    // Post: the tokens from first on are those scanned from at, until
+    //       one starts at the same place as an old token at or past
+    //       editEnd -- the number scanned is tokenGap - first
+
+    private void replaceText(int offset, int removed, CharSequence inserted)
+    // Post: the characters are replaced AND lines is brought up to date
+
+    private void moveTextGap(int to)
+    private void moveTokenGap(int to)
+    // Post: the gap starts at to
+
+    private void move(int from, int to)
+    // Post: entry to is a copy of entry from
+
+    private void add(Token.TokenType t, String s, int at, int atScanned,
+                     int atLine, int atColumn)
+    // Post: the token is the last entry before the token gap
+
+    private Object copy(Object from, Object to, int end, int tail)
+    // Post: return to holding the entries of from with the tail at end
+
+    private int firstReaching(int offset)
+    // Post: return the index of the first token whose scanned >= offset,
+    //       or size() if there is none
+
+    private int entry(int i)
+    // Post: return the array entry of token i
+
+    private int startOf(int i), scannedOf(int i), lineOf(int i)
+    // Post: return the start, scanned or line of token i
+
+CLASS INVARIANT:
+
+    0 <= gapStart <= gapEnd <= text.length AND
+    0 <= tokenGap <= tokenEnd <= type.length AND
+    the tokens are those of the text, in order, ending with EOF_T
+
+*/
+
+public class IncrementalTokenizer {
+
+    // State
+
+    private static final int initialTokens = 64;
+
+    private char[]            text;
+    private int               gapStart;     // first unit of the text gap
+    private int               gapEnd;       // first unit after the gap
+    private int               lines = 1;    // number of lines of the text
+
+    private Token.TokenType[] type   = new Token.TokenType[initialTokens];
+    private String[]          name   = new String[initialTokens];
+    private int[]             start  = new int[initialTokens];
+    private int[]             scanned = new int[initialTokens];
+    private int[]             line   = new int[initialTokens];
+    private int[]             column = new int[initialTokens];
+    private int               tokenGap = 0;  // first entry of the gap
+    private int               tokenEnd = initialTokens;  // first after it
+
+    private final TextBuffer  input;     // view of text for the Tokenizer
+    private final Tokenizer   scanner;   // the Tokenizer over input
+
+    // Constructor
+
+    public IncrementalTokenizer(CharSequence text)
+    // Post: the text is text AND the tokens are its tokens, ending with
+    //       EOF_T
+    {
+        this.text = new char[Math.max(2 * text.length(), 64)];
+        this.gapStart = 0;
+        this.gapEnd = this.text.length;
+        replaceText(0, 0, text);
+
+        input = new TextBuffer();
+        scanner = new Tokenizer(input, false);
+        rescan(0, 0, 1, 0, 0);
+    }
+
+    // Interface -- public methods
+
+    public int length()
+    // Post: return the number of characters of the text
+    {
+        return text.length - (gapEnd - gapStart);
+    }
+
+    public int size()
+    // Post: return the number of tokens
+    {
+        return type.length - (tokenEnd - tokenGap);
+    }
+
+    public Token get(int i)
+    // Pre:  0 <= i < size()
+    // Post: return a new Token holding token i
+    {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("token " + i + " of " + size());
+        return new Token(type[entry(i)], name[entry(i)], startOf(i), lineOf(i), column[entry(i)]);
+    }
+
+    public String getText()
+    // Post: return the text as a new String
+    {
+        return new StringBuilder(length())
+            .append(text, 0, gapStart)
+            .append(text, gapEnd, text.length - gapEnd)
+            .toString();
+    }
+
+    public Change edit(int offset, int removed, CharSequence inserted)
+    // Pre:  0 <= offset AND 0 <= removed AND offset + removed <= length()
+    // Post: the characters offset .. offset+removed-1 of the text are
+    //       replaced by inserted AND the tokens are those of the new text
+    //       AND return the tokens replaced -- Except throw
+    //       IndexOutOfBoundsException if the range is not in the text
+    {
+        if (offset < 0 || removed < 0 || offset + removed > length())
+            throw new IndexOutOfBoundsException("edit " + offset + ", " + removed + " of " + length());
+
+        int r = firstReaching(offset);
+        if (r == size()) {  // past the end of input (a zero character)
+            moveTokenGap(r);
+            replaceText(offset, removed, inserted);
+            return new Change(r, 0, 0);
+        }
+
+        // restart at token r-1, or at the start of the text
+        int first = Math.max(r - 1, 0);
+        int at = 0, atLine = 1, atLineStart = 0;
+        if (r != 0) {
+            at = startOf(first);
+            atLine = lineOf(first);
+            atLineStart = at - column[entry(first)] + 1;
+        }
+
+        moveTokenGap(first);
+        int old = size();
+        replaceText(offset, removed, inserted);
+        rescan(first, at, atLine, atLineStart, offset + inserted.length());
+
+        int added = tokenGap - first;
+        return new Change(first, added - (size() - old), added);
+    }
+
+    // The result of an edit
+
+    public static class Change {
+
+        private final int first;     // index of the first token replaced
+        private final int removed;   // number of old tokens replaced
+        private final int inserted;  // number of new tokens
+
+        Change(int first, int removed, int inserted)
+        {
+            this.first = first;
+            this.removed = removed;
+            this.inserted = inserted;
+        }
+
+        public int getFirst()    { return first; }
+        public int getRemoved()  { return removed; }
+        public int getInserted() { return inserted; }
+            // Post: return first, removed and inserted
+
+        public String toString()
+        {
+            return "tokens " + first + ".." + (first + removed) + " -> " + first + ".." + (first + inserted);
+        }
+    }
+
+    // Helpers
+
+    private void rescan(int first, int at, int atLine, int atLineStart, int editEnd)
+    // Pre:  the token gap is at first AND at is the start of the text or
+    //       of token first AND atLine, atLineStart locate at
+    // Post: the tokens from first on are those scanned from at, until
+    //       one starts at the same place as an old token at or past
+    //       editEnd -- the number scanned is tokenGap - first
+    {
+        input.seek(at);
+        scanner.restart(input, atLine, atLineStart);
+        int length = length();
+
+        while (true) {
+            TokenCursor t = scanner.nextToken();
+            int s = (int)t.getOffset();
+
+            while (tokenEnd != type.length && start[tokenEnd] + length < s)
+                tokenEnd++;  // an old token which is replaced
+            if (t.getType() == Token.TokenType.EOF_T)
+                tokenEnd = type.length;
+            else if (tokenEnd != type.length && start[tokenEnd] + length == s && s >= editEnd) {
+                // back in step with the old tokens
+                int dColumn = t.getColumn() - column[tokenEnd];
+                int resync = line[tokenEnd];
+                for (int e = tokenEnd; e != type.length && line[e] == resync; e++)
+                    column[e] += dColumn;
+                return;
+            }
+
+            add(t.getType(), t.getName(), s, (int)scanner.scanned(), t.getLine(), t.getColumn());
+            if (t.getType() == Token.TokenType.EOF_T)
+                return;
+        }
+    }
+
+    private void replaceText(int offset, int removed, CharSequence inserted)
+    // Post: the characters are replaced AND lines is brought up to date
+    {
+        moveTextGap(offset);
+        for (int i = gapEnd; i != gapEnd + removed; i++)
+            if (text[i] == '\n')
+                lines--;
+        gapEnd += removed;
+
+        int n = inserted.length();
+        if (gapEnd - gapStart < n) {
+            int size = length();
+            char[] grown = new char[Math.max(2 * text.length, size + n + 64)];
+            int tail = text.length - gapEnd;
+            System.arraycopy(text, 0, grown, 0, gapStart);
+            System.arraycopy(text, gapEnd, grown, grown.length - tail, tail);
+            gapEnd = grown.length - tail;
+            text = grown;
+        }
+        for (int i = 0; i != n; i++) {
+            char ch = inserted.charAt(i);
+            if (ch == '\n')
+                lines++;
+            text[gapStart++] = ch;
+        }
+    }
+
+    private void moveTextGap(int to)
+    // Post: the gap starts at to
+    {
+        if (to < gapStart)
+            System.arraycopy(text, to, text, gapEnd - (gapStart - to), gapStart - to);
+        else
+            System.arraycopy(text, gapEnd, text, gapStart, to - gapStart);
+        gapEnd += to - gapStart;
+        gapStart = to;
+    }
+
+    private void moveTokenGap(int to)
+    // Post: the gap starts at to
+    {
+        int length = length();
+        while (tokenGap > to) {  // to the tail -- relative to the end
+            tokenGap--;
+            tokenEnd--;
+            move(tokenGap, tokenEnd);
+            start[tokenEnd]   -= length;
+            scanned[tokenEnd] -= length;
+            line[tokenEnd]    -= lines;
+        }
+        while (tokenGap < to) {  // to the head -- absolute
+            move(tokenEnd, tokenGap);
+            start[tokenGap]   += length;
+            scanned[tokenGap] += length;
+            line[tokenGap]    += lines;
+            tokenGap++;
+            tokenEnd++;
+        }
+    }
+
+    private void move(int from, int to)
+    // Post: entry to is a copy of entry from
+    {
+        type[to]    = type[from];
+        name[to]    = name[from];
+        start[to]   = start[from];
+        scanned[to] = scanned[from];
+        line[to]    = line[from];
+        column[to]  = column[from];
+    }
+
+    private void add(Token.TokenType t, String s, int at, int atScanned, int atLine, int atColumn)
+    // Post: the token is the last entry before the token gap
+    {
+        if (tokenGap == tokenEnd) {  // the gap is full
+            int capacity = 2 * type.length;
+            int tail = type.length - tokenEnd;
+            int end = capacity - tail;
+            type    = (Token.TokenType[])copy(type, new Token.TokenType[capacity], end, tail);
+            name    = (String[])copy(name, new String[capacity], end, tail);
+            start   = (int[])copy(start, new int[capacity], end, tail);
+            scanned = (int[])copy(scanned, new int[capacity], end, tail);
+            line    = (int[])copy(line, new int[capacity], end, tail);
+            column  = (int[])copy(column, new int[capacity], end, tail);
+            tokenEnd = end;
+        }
+        type[tokenGap]    = t;
+        name[tokenGap]    = s;
+        start[tokenGap]   = at;
+        scanned[tokenGap] = atScanned;
+        line[tokenGap]    = atLine;
+        column[tokenGap]  = atColumn;
+        tokenGap++;
+    }
+
+    private Object copy(Object from, Object to, int end, int tail)
+    // Pre:  from and to are token arrays of the same type AND tail is
+    //       the number of entries after the gap of from
+    // Post: return to holding the entries before the gap of from at the
+    //       same place and those after the gap from end on
+    {
+        System.arraycopy(from, 0, to, 0, tokenGap);
+        System.arraycopy(from, tokenEnd, to, end, tail);
+        return to;
+    }
+
+    private int firstReaching(int offset)
+    // Post: return the index of the first token whose scanned >= offset,
+    //       or size() if there is none
+    {
+        int lo = 0, hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (scannedOf(mid) >= offset)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private int entry(int i)
+    // Post: return the array entry of token i
+    {
+        return (i < tokenGap) ? i : i + (tokenEnd - tokenGap);
+    }
+
+    private int startOf(int i)
+    // Post: return the start of token i
+    {
+        return (i < tokenGap) ? start[i] : start[entry(i)] + length();
+    }
+
+    private int scannedOf(int i)
+    // Post: return the scanned of token i
+    {
+        return (i < tokenGap) ? scanned[i] : scanned[entry(i)] + length();
+    }
+
+    private int lineOf(int i)
+    // Post: return the line of token i
+    {
+        return (i < tokenGap) ? line[i] : line[entry(i)] + lines;
+    }
+
+    // The text as seen by the Tokenizer -- units are chars and indices
+    // are offsets in the text
+
+    private class TextBuffer extends ScanBuffer {
+
+        private int pos = 0;   // offset of the next char
+        private int mark = 0;  // offset of the first char of the token
+
+        void seek(int at)
+        // Post: pos == mark == at
+        {
+            pos = mark = at;
+        }
+
+        int next()
+        {
+            return (pos == length()) ? EOF : unitAt(pos++);
+        }
+
+        void back()
+        {
+            pos--;
+        }
+
+        void mark()
+        {
+            mark = pos;
+        }
+
+        int markIndex()
+        {
+            return mark;
+        }
+
+        long markOffset()
+        {
+            return mark;
+        }
+
+        long offset()
+        {
+            return pos;
+        }
+
+        public int unitAt(int index)
+        {
+            return text[(index < gapStart) ? index : index + (gapEnd - gapStart)];
+        }
+
+        public String text(int index, int length)
+        {
+            char[] chars = new char[length];
+            for (int i = 0; i != length; i++)
+                chars[i] = (char)unitAt(index + i);
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class is the TokenizerException thrown by a Tokenizer in the FAIL error mode at the first malformed token, holding the Diagnostic which describes it.
+
+STATE:
+
+    private Diagnostic diagnostic;   // the malformed token
+
+INTERFACE:
+
+    public MalformedTokenException(Diagnostic diagnostic)
+    // Post: this.diagnostic == diagnostic AND the position is its start
+
+    public Diagnostic getDiagnostic()
+    // Post: return diagnostic
+
+HELPER METHODS:
+
+There are no helper methods.
+
+CLASS INVARIANT:
+
+This class has no class invariant.
+
+*/
+
+public class MalformedTokenException extends TokenizerException {
+
+    private static final long serialVersionUID = 1L;
+
+    // State
+
+    private final Diagnostic diagnostic;
+
+    // Constructor
+
+    public MalformedTokenException(Diagnostic diagnostic)
+    // Post: this.diagnostic == diagnostic AND the position is its start
+    {
+        super("malformed token `" + diagnostic.getText() + "', expected " + diagnostic.getExpected(),
+              diagnostic.getOffset(), diagnostic.getLine(), diagnostic.getColumn(), null);
+        this.diagnostic = diagnostic;
+    }
+
+    // Interface -- public methods
+
+    public Diagnostic getDiagnostic()
+    // Post: return diagnostic
+    {
+        return diagnostic;
+    }
+}
@@ -0,0 +1,258 @@
+package tokenizer;
+
+import java.math.BigInteger;
+
+/**
+
+DESCRIPTION:
+
+This class works out the value of an INT_T or FLOAT_T token from its units where they lie in the ScanBuffer (or any UnitSource), so the Tokenizer can hand out numbers as primitive values without building a String for each one.  The units of a number are ASCII digits -- ScanTable puts no other digit in one -- so the value of a digit is its unit less '0', whether the unit is a char or a UTF-8 byte.
+
+An integer is accumulated digit by digit; up to 18 digits cannot overflow a long, and only longer ones are checked.  A float is reduced in one pass to a decimal significand w of at most 19 digits and a power of ten q, so that its value is w * 10^q, and then converted:
+
+     1. if w <= 2^53 and |q| <= 22, both w and 10^q are exact doubles, and
+        one multiplication or division gives the correctly rounded
+        result (Clinger's fast path)
+
+     2. otherwise the Eisel-Lemire algorithm multiplies w by a 128-bit
+        approximation of 5^q, taken from the table 'POW5', and rounds the
+        top bits of the product -- which is always exact when w holds
+        every digit of the number
+
+     3. a number with more than 19 significant digits is truncated to w,
+        and converted with w and with w+1; if the two agree that is the
+        answer, and only if they do not is the text handed to
+        Double.parseDouble
+
+The table holds 5^q for -342 <= q <= 308, normalized so its top bit is set and cut to 128 bits (rounded up for q < 0); it is computed with BigInteger when a float first needs it, so a Tokenizer which never meets one never builds it.
+
+STATE:
+
+    private static double[] POW10;   // 10^0 .. 10^22, all exact
+
+and in the nested class Powers, which is initialized on first use,
+
+    static long[] POW5;              // 5^q as pairs of high and low
+                                     // words, for MIN_Q <= q <= MAX_Q
+
+INTERFACE:
+
+    static long parseLong(UnitSource in, int index, int length)
+    // Pre:  units index .. index+length-1 of in are ASCII digits 0 .. 9
+    // Post: return their value -- Except return -1 if it is larger than
+    //       Long.MAX_VALUE
+
+    static double parseDouble(UnitSource in, int index, int length)
+    // Pre:  units index .. index+length-1 of in are a FLOAT_T -- digits
+    //       with at most one '.' and an optional exponent e or E, sign
+    //       and digits
+    // Post: return the double nearest its value, ties to even -- which
+    //       is infinite if the value is too large
+
+HELPER METHODS:
+
+    private static double lemire(long w, int q)
+    // Pre:  w != 0, taken as unsigned
+    // Post: return the double nearest w * 10^q
+
+    private static long multiplyHigh(long a, long b)
+    // Post: return the high 64 bits of the unsigned product a * b
+
+    private static boolean isDigit(int unit)
+    // Post: return true if unit is 0 .. 9
+
+CLASS INVARIANT:
+
+The tables never change once computed.
+
+*/
+
+final class NumberParser {
+
+    // State
+
+    private static final int MIN_Q = -342;   // 10^q for smaller q is 0
+    private static final int MAX_Q = 308;    // and for larger q infinite
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private NumberParser() { }
+
+    // Interface
+
+    static long parseLong(UnitSource in, int index, int length)
+    // Pre:  units index .. index+length-1 of in are ASCII digits 0 .. 9
+    // Post: return their value -- Except return -1 if it is larger than
+    //       Long.MAX_VALUE
+    {
+        long n = 0;
+        int i = 0;
+        for (int safe = Math.min(length, 18); i != safe; i++)
+            n = 10 * n + (in.unitAt(index + i) - '0');
+        for (; i != length; i++) {
+            int d = in.unitAt(index + i) - '0';
+            if (n > (Long.MAX_VALUE - d) / 10)
+                return -1;
+            n = 10 * n + d;
+        }
+        return n;
+    }
+
+    static double parseDouble(UnitSource in, int index, int length)
+    // Pre:  units index .. index+length-1 of in are a FLOAT_T
+    // Post: return the double nearest its value, ties to even
+    {
+        long    w = 0;       // the first 19 significant digits, unsigned
+        int     n = 0;       // number of significant digits in w
+        int     q = 0;       // the value is w * 10^q
+        boolean truncated = false;  // a nonzero digit was left out of w
+
+        int i = 0, u = 0;
+        for (; i != length && isDigit(u = in.unitAt(index + i)); i++)
+            if (n < 19) {
+                w = 10 * w + (u - '0');
+                if (w != 0)
+                    n++;
+            }
+            else {
+                q++;
+                truncated |= u != '0';
+            }
+        if (i != length && u == '.')
+            for (i++; i != length && isDigit(u = in.unitAt(index + i)); i++)
+                if (n < 19) {
+                    w = 10 * w + (u - '0');
+                    q--;
+                    if (w != 0)
+                        n++;
+                }
+                else
+                    truncated |= u != '0';
+        if (i != length) {  // u is e or E
+            boolean negative = false;
+            u = in.unitAt(index + ++i);
+            if (u == '+' || u == '-') {
+                negative = u == '-';
+                i++;
+            }
+            int e = 0;
+            for (; i != length; i++)
+                if (e < 100000)  // far beyond any finite double
+                    e = 10 * e + (in.unitAt(index + i) - '0');
+            q += negative ? -e : e;
+        }
+
+        if (w == 0)
+            return 0.0;
+        if (!truncated) {
+            if (w > 0 && w <= (1L << 53) && q >= -22 && q <= 22)
+                return (q < 0) ? w / POW10[-q] : w * POW10[q];
+            return lemire(w, q);
+        }
+        double d = lemire(w, q);
+        if (d == lemire(w + 1, q))
+            return d;
+        return Double.parseDouble(in.text(index, length));
+    }
+
+    // Helpers
+
+    private static double lemire(long w, int q)
+    // Pre:  w != 0, taken as unsigned
+    // Post: return the double nearest w * 10^q
+    {
+        if (q < MIN_Q)
+            return 0.0;
+        if (q > MAX_Q)
+            return Double.POSITIVE_INFINITY;
+
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        // the top 64 bits of w * 5^q, and the next 64 when those could
+        // carry into the 55 bits which are kept
+        long[] pow5 = Powers.POW5;
+        int  t  = 2 * (q - MIN_Q);
+        long hi = multiplyHigh(w, pow5[t]);
+        long lo = w * pow5[t];
+        if ((hi & 0x1FF) == 0x1FF) {
+            long hi2 = multiplyHigh(w, pow5[t + 1]);
+            lo += hi2;
+            if (Long.compareUnsigned(hi2, lo) > 0)
+                hi++;
+        }
+
+        int  upper = (int)(hi >>> 63);
+        long m = hi >>> (upper + 9);  // 54 bits: 53 and one to round
+        int  e = ((217706 * q) >> 16) + 63 + upper - lz + 1023;
+
+        if (e <= 0) {  // subnormal
+            if (-e + 1 >= 64)
+                return 0.0;
+            m >>>= -e + 1;
+            m += m & 1;
+            m >>>= 1;
+            e = (m < (1L << 52)) ? 0 : 1;
+            return Double.longBitsToDouble(((long)e << 52) | m);
+        }
+
+        // a product exactly halfway between two doubles rounds to even
+        if ((lo == 0 || lo == 1) && q >= -4 && q <= 23 && (m & 3) == 1
+                && (m << (upper + 9)) == hi)
+            m &= ~1L;
+        m += m & 1;
+        m >>>= 1;
+        if (m >= (2L << 52)) {
+            m = 1L << 52;
+            e++;
+        }
+        if (e >= 0x7FF)
+            return Double.POSITIVE_INFINITY;
+        return Double.longBitsToDouble(((long)e << 52) | (m & ~(1L << 52)));
+    }
+
+    private static long multiplyHigh(long a, long b)
+    // Post: return the high 64 bits of the unsigned product a * b
+    {
+        long a0 = a & 0xFFFFFFFFL, a1 = a >>> 32;
+        long b0 = b & 0xFFFFFFFFL, b1 = b >>> 32;
+        long mid = (a0 * b0 >>> 32) + (a1 * b0 & 0xFFFFFFFFL) + a0 * b1;
+        return a1 * b1 + (a1 * b0 >>> 32) + (mid >>> 32);
+    }
+
+    private static boolean isDigit(int unit)
+    // Post: return true if unit is 0 .. 9
+    {
+        return unit >= '0' && unit <= '9';
+    }
+
+    // The table of powers of five, built on first use
+
+    private static final class Powers {
+
+        static final long[] POW5 = new long[2 * (MAX_Q - MIN_Q + 1)];
+
+        static {
+            BigInteger five = BigInteger.valueOf(5);
+            for (int q = MIN_Q; q <= MAX_Q; q++) {
+                BigInteger c;
+                if (q >= 0) {
+                    BigInteger p = five.pow(q);
+                    c = p.shiftLeft(128 - p.bitLength());
+                }
+                else {
+                    BigInteger p = five.pow(-q);
+                    int z = p.bitLength();  // 2^(z-1) < p < 2^z
+                    int b = (q >= -27) ? z + 127 : 2 * z + 128;
+                    c = BigInteger.ONE.shiftLeft(b).divide(p).add(BigInteger.ONE);
+                    c = c.shiftRight(Math.max(0, c.bitLength() - 128));
+                }
+                POW5[2 * (q - MIN_Q)]     = c.shiftRight(64).longValue();
+                POW5[2 * (q - MIN_Q) + 1] = c.longValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+
+DESCRIPTION:
+
+This class tokenizes a large file on several cores at once.  The PDef grammar has no token which contains a blank, so the scanner is always back in START_S after a blank has been read.  The file is therefore cut into chunks of about 'chunkSize' bytes, each ending just after a blank, tab or end of line, and each chunk is mapped into memory and scanned on a pool of 'parallelism' threads, while the tokens are handed out in file order by getNextToken or nextTokens.  The EOF_T produced at the end of every chunk but the last is dropped, so the tokens are exactly the sequence the sequential getNextToken loop produces.
+
+The tokens of a chunk are kept in primitive columns, as in a TokenBatch, together with the symbol number of each word and the interned names of the chunk's symbols; no Token is made for a token until getNextToken hands it out, and none at all by nextTokens.  At most 'window' chunks are scanned ahead of the one being handed out, as BatchTokenizer bounds the files of a run, so the memory held stays bounded however large the file is.  Each thread keeps one Tokenizer, reset for each chunk it scans, so the symbol table and buffers of a Tokenizer are made once per thread rather than once per chunk.
+
+Each chunk is scanned as if it were a file of its own, so the positions of its tokens are relative to the chunk.  They are moved into place as the tokens are handed out: the offset by the start of the chunk, the line by the number of ends of line in the chunks before it (the line count of each chunk's scan), and the column of a token on the first line of a chunk by the number of characters from the start of that line to the start of the chunk -- which is worked out from the column each chunk's scan ends at, so no byte is read twice.
+
+Since a zero character is treated as the end of the input by the Tokenizer, the tokens stop at the first chunk whose scan ended before its last byte.
+
+The file is opened and the threads started by the first request for a token; they are stopped, and the file closed, once the EOF_T has been handed out, or by close.
+
+STATE:
+
+    private Path      path;         // the input file
+    private int       parallelism;  // number of worker threads
+    private int       window;       // chunks scanned ahead of the one
+                                    // being handed out
+    private FileChannel channel;    // the open file, or null
+    private long[]    bounds;       // chunk boundaries, once split
+    private ExecutorService pool;   // the worker threads, or null
+    private ThreadLocal<Tokenizer> scanner;  // Tokenizer of each thread
+    private ArrayDeque<Future<Chunk>> pending;  // chunks submitted, in
+                                                // file order
+    private int       submitted;    // number of chunks submitted
+    private Chunk     chunk;        // the chunk being handed out, or null
+    private int       c;            // its number
+    private int       next;         // index in chunk of the next token
+    private int       lines;        // ends of line before chunk c
+    private int       lineChars;    // characters from the start of the
+                                    // line holding bounds[c] to bounds[c]
+    private Token     eof;          // the EOF_T, once handed out
+
+INTERFACE:
+
+    public ParallelTokenizer(Path path, int parallelism)
+    // Pre:  path names a readable regular file AND parallelism > 0
+    // Post: this.path == path AND this.parallelism == parallelism AND
+    //       window == 2 * parallelism
+
+    public ParallelTokenizer(Path path)
+    // Post: as above with one worker per available processor
+
+    public Token getNextToken()
+    // Post: return the next token of the file -- EOF_T is returned
+    //       again once the tokens are exhausted -- Except throw
+    //       TokenizerException if the file cannot be read
+
+    public int nextTokens(TokenBatch batch)
+    // Post: batch holds the next n tokens of the file, where n is its
+    //       capacity -- Except the tokens stop after an EOF_T AND
+    //       return n -- Except throw TokenizerException as above
+
+    public void close()
+    // Post: the threads are stopped AND the file is closed
+
+HELPER METHODS:
+
+    private boolean advance() throws IOException
+    // Post: chunk is the chunk holding the next token, and the chunks
+    //       after it are submitted up to window AND return true --
+    //       Except return false once the last EOF_T has been handed out,
+    //       and throw IOException once the file has been closed
+
+    private Chunk scan(int c) throws IOException
+    // Pre:  channel is open
+    // Post: return the tokens of chunk c, scanned by the Tokenizer of
+    //       the calling thread
+
+    private TokenizerException failure(Exception e)
+    // Post: close() AND return the exception for e, at bounds[c]
+
+    private long[] split(FileChannel channel, long size) throws IOException
+    // Post: return the chunk boundaries 0 == b[0] < b[1] .. < b[n] == size
+    //       where each b[i] (0 < i < n) follows a blank -- Except an
+    //       empty file is one empty chunk, b == { 0, 0 }
+
+    private static long afterBlank(FileChannel channel, long from, long size)
+    // Post: return the offset just past the first blank at or after from,
+    //       or size if there is none
+
+The tokens of a chunk are held by the nested class Chunk.
+
+CLASS INVARIANT:
+
+    chunk == null OR 0 <= next < chunk.size AND at most window chunks
+    are pending
+
+*/
+
+public class ParallelTokenizer implements TokenSource, AutoCloseable {
+
+    // State
+
+    private static final long chunkSize = 1 << 20;   // least chunk
+    private static final long maxChunk  = 1 << 30;   // largest mapping
+
+    private final Path path;         // the input file
+    private final int  parallelism;  // number of worker threads
+    private final int  window;       // chunks scanned ahead
+    private FileChannel channel = null;  // the open file
+    private long[]      bounds  = null;  // chunk boundaries
+    private ExecutorService pool = null; // the worker threads
+    private final ThreadLocal<Tokenizer> scanner = new ThreadLocal<Tokenizer>();
+    private final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+    private int   submitted = 0;     // chunks submitted
+    private Chunk chunk = null;      // the chunk being handed out
+    private int   c = -1;            // its number
+    private int   next = 0;          // index in chunk of the next token
+    private int   lines = 0;         // ends of line before chunk c
+    private int   lineChars = 0;     // characters of its line before it
+    private Token eof = null;        // the EOF_T, once handed out
+
+    // Constructors
+
+    public ParallelTokenizer(Path path, int parallelism)
+    // Pre:  path names a readable regular file AND parallelism > 0
+    // Post: this.path == path AND this.parallelism == parallelism AND
+    //       window == 2 * parallelism
+    {
+        this.path = path;
+        this.parallelism = parallelism;
+        this.window = 2 * parallelism;
+    }
+
+    public ParallelTokenizer(Path path)
+    // Post: as above with one worker per available processor
+    {
+        this(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Interface -- public methods
+
+    public Token getNextToken()
+    // Post: return the next token of the file -- EOF_T is returned
+    //       again once the tokens are exhausted -- Except throw
+    //       TokenizerException if the file cannot be read
+    {
+        try {
+            if (!advance())
+                return eof;
+        }
+        catch (IOException | RuntimeException e) {
+            throw failure(e);
+        }
+        Token token = chunk.token(next++, bounds[c], lines, lineChars);
+        if (token.getType() == Token.TokenType.EOF_T) {
+            eof = token;
+            close();
+        }
+        return token;
+    }
+
+    public int nextTokens(TokenBatch batch)
+    // Post: batch holds the next n tokens of the file, where n is its
+    //       capacity -- Except the tokens stop after an EOF_T AND
+    //       return n -- Except throw TokenizerException as above
+    {
+        batch.clear();
+        try {
+            while (batch.size() != batch.capacity() && advance()) {
+                Chunk k = chunk;
+                int n = Math.min(k.size - next, batch.capacity() - batch.size());
+                for (int end = next + n; next != end; next++) {
+                    k.add(batch, next, bounds[c], lines, lineChars);
+                    if (k.type[next] == Token.TokenType.EOF_T.ordinal()) {
+                        eof = k.token(next, bounds[c], lines, lineChars);
+                        close();
+                        return batch.size();
+                    }
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            throw failure(e);
+        }
+        if (batch.size() == 0)  // EOF_T again, as for getNextToken
+            batch.add(eof.getType(), eof.getOffset(), 0, eof.getLine(), eof.getColumn(), 0);
+        return batch.size();
+    }
+
+    public void close()
+    // Post: the threads are stopped AND the file is closed
+    {
+        if (pool != null)
+            pool.shutdownNow();
+        pool = null;
+        pending.clear();
+        chunk = null;
+        try {
+            if (channel != null)
+                channel.close();
+        }
+        catch (IOException e) {  // nothing is lost with a read only file
+        }
+        channel = null;
+    }
+
+    // Helpers
+
+    private boolean advance() throws IOException
+    // Post: chunk is the chunk holding the next token, and the chunks
+    //       after it are submitted up to window AND return true --
+    //       Except return false once the last EOF_T has been handed out,
+    //       and throw IOException once the file has been closed
+    {
+        if (eof != null)
+            return false;
+        if (bounds == null) {  // the first request
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            bounds = split(channel, channel.size());
+            pool = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "pdef-parallel");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        else if (pool == null)
+            throw new IOException(path + " has been closed");
+
+        while (chunk == null || next == chunk.size) {  // a chunk of blanks has no tokens
+            if (chunk != null) {  // place the next chunk after this one
+                if (chunk.endLine != 1) {
+                    lines += chunk.endLine - 1;
+                    lineChars = 0;
+                }
+                lineChars += chunk.endColumn - 1;
+            }
+            while (submitted != bounds.length - 1 && pending.size() != window) {
+                int k = submitted++;
+                pending.add(pool.submit(() -> scan(k)));
+            }
+            try {
+                chunk = pending.remove().get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for chunk " + (c + 1), e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException)e.getCause();
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException)e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+            c++;
+            next = 0;
+            if (!chunk.stopped && c != bounds.length - 2)
+                chunk.size--;  // the EOF_T of a chunk which is not the last
+        }
+        return true;
+    }
+
+    private Chunk scan(int c) throws IOException
+    // Pre:  channel is open
+    // Post: return the tokens of chunk c, scanned by the Tokenizer of
+    //       the calling thread
+    {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c + 1] - bounds[c]);
+        ByteScanBuffer in = new ByteScanBuffer(bytes);
+        if (c == 0)
+            in.skipBom();
+        Tokenizer t = scanner.get();
+        if (t == null)
+            scanner.set(t = new Tokenizer(in, false));
+        else
+            t.reset(in);
+
+        Chunk k = new Chunk(in);
+        TokenCursor token;
+        do {
+            token = t.nextToken();
+            k.add(token);
+        } while (token.getType() != Token.TokenType.EOF_T);
+        k.endLine   = t.line();
+        k.endColumn = t.column();
+        k.stopped   = token.getOffset() < bounds[c + 1] - bounds[c];
+        return k;
+    }
+
+    private TokenizerException failure(Exception e)
+    // Post: close() AND return the exception for e, at bounds[c]
+    {
+        close();
+        if (e instanceof TokenizerException)
+            return (TokenizerException)e;
+        long at = (bounds != null && c >= 0) ? bounds[c] : 0;
+        return new TokenizerException("cannot tokenize " + path + ": " + e.getMessage(), at, lines + 1, lineChars + 1, e);
+    }
+
+    private long[] split(FileChannel channel, long size) throws IOException
+    // Post: return the chunk boundaries 0 == b[0] < b[1] .. < b[n] == size
+    //       where each b[i] (0 < i < n) follows a blank -- Except an
+    //       empty file is one empty chunk, b == { 0, 0 }
+    {
+        List<Long> b = new ArrayList<Long>();
+        long at = 0;
+        b.add(at);
+        do {  // at least one chunk, so an empty file has its EOF_T
+            long end = (size - at <= chunkSize) ? size : afterBlank(channel, at + chunkSize, size);
+            if (end - at > maxChunk)  // no blank for a whole mapping
+                throw new IOException("no blank between offsets " + at + " and " + end);
+            b.add(at = end);
+        } while (at < size);
+
+        long[] bounds = new long[b.size()];
+        for (int i = 0; i != bounds.length; i++)
+            bounds[i] = b.get(i);
+        return bounds;
+    }
+
+    private static long afterBlank(FileChannel channel, long from, long size) throws IOException
+    // Post: return the offset just past the first blank at or after from,
+    //       or size if there is none
+    {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (from < size) {
+            probe.clear();
+            int n = channel.read(probe, from);
+            if (n <= 0)
+                break;
+            for (int i = 0; i != n; i++) {
+                byte b = probe.get(i);
+                if (b == ' ' || b == '\t' || b == '\n')
+                    return from + i + 1;
+            }
+            from += n;
+        }
+        return size;
+    }
+
+    // The tokens of a chunk
+
+    private static class Chunk {
+
+        private static final Token.TokenType[] types = Token.TokenType.values();
+
+        private final ByteScanBuffer in;  // the chunk, for the text of a
+                                          // token with no symbol
+        byte[]   type   = new byte[256];  // columns, as in TokenBatch,
+        int[]    start  = new int[256];   // relative to the chunk
+        int[]    length = new int[256];
+        int[]    line   = new int[256];
+        int[]    column = new int[256];
+        long[]   value  = new long[256];
+        int[]    symbol = new int[256];   // symbol number, or NO_SYMBOL
+        String[] names  = new String[64]; // interned name of each symbol
+        int      size   = 0;              // number of tokens
+        int      endLine, endColumn;      // where the scan ended
+        boolean  stopped;                 // true if it ended early
+
+        Chunk(ByteScanBuffer in)
+        {
+            this.in = in;
+        }
+
+        void add(TokenCursor t)
+        // Post: t is entry size of the columns AND size is incremented
+        {
+            if (size == type.length) {
+                int n = 2 * size;
+                type   = Arrays.copyOf(type, n);
+                start  = Arrays.copyOf(start, n);
+                length = Arrays.copyOf(length, n);
+                line   = Arrays.copyOf(line, n);
+                column = Arrays.copyOf(column, n);
+                value  = Arrays.copyOf(value, n);
+                symbol = Arrays.copyOf(symbol, n);
+            }
+            int s = t.getSymbol();
+            if (s != SymbolTable.NO_SYMBOL) {
+                if (s >= names.length)
+                    names = Arrays.copyOf(names, Math.max(2 * names.length, s + 1));
+                if (names[s] == null)
+                    names[s] = t.getName();
+            }
+            type[size]   = (byte)t.getType().ordinal();
+            start[size]  = (int)t.getOffset();
+            length[size] = t.units();
+            line[size]   = t.getLine();
+            column[size] = t.getColumn();
+            value[size]  = t.value();
+            symbol[size] = s;
+            size++;
+        }
+
+        Token token(int i, long dOffset, int dLine, int dColumn)
+        // Pre:  0 <= i < size
+        // Post: return token i, moved into place as described above
+        {
+            String name = (symbol[i] != SymbolTable.NO_SYMBOL) ? names[symbol[i]] : in.text(start[i], length[i]);
+            return new Token(types[type[i]], name, dOffset + start[i], dLine + line[i],
+                             (line[i] == 1) ? dColumn + column[i] : column[i], value[i]);
+        }
+
+        void add(TokenBatch batch, int i, long dOffset, int dLine, int dColumn)
+        // Pre:  0 <= i < size AND batch is not full
+        // Post: token i, moved into place, is added to batch
+        {
+            batch.add(types[type[i]], dOffset + start[i], length[i], dLine + line[i],
+                      (line[i] == 1) ? dColumn + column[i] : column[i], value[i]);
+        }
+    }
+}
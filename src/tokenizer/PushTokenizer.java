@@ -0,0 +1,368 @@
+package tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+
+DESCRIPTION:
+
+This class is a tokenizer which is pushed its input rather than pulling it: the bytes (ASCII or UTF-8) arrive in chunks through 'feed', in whatever pieces a network connection delivers them, and every token is passed to a Consumer as soon as it is complete.  Nothing ever blocks, so a single event loop thread can tokenize any number of streams at once, one PushTokenizer per stream.
+
+The scanner runs the finite state machine of ScanTable one character at a time, exactly as Tokenizer.scan does, but all of its state lives in fields so that it can stop at the end of a chunk and go on with the next one: the state of the machine (mid-identifier, or mid-number in one of the states of an integer, a float or its exponent), the bytes of the token so far -- from which the value of a number is worked out as it is emitted -- and any UTF-8 sequence cut in two by the end of a chunk.  A character which is put back by a transition is simply run through the machine again from START_S.  Offsets are counted in bytes, as for a memory mapped file, and columns in characters, as they are for every input: 'extra' counts the continuation bytes consumed, and a character offset is the byte offset less extra.  So the tokens are exactly those Tokenizer produces for the whole input in one file, and those it produces through a Reader but for their offsets.  A UTF-8 byte order mark at the start of the input is passed over, as it is there.
+
+As with Tokenizer, a zero byte ends the input; the tokens stop after the EOF_T it produces and any bytes fed afterwards are ignored.
+
+The bytes of a token are kept only up to 'maxLength', so that a peer which sends an endless identifier or number cannot make the buffer grow without limit.  A token which outgrows it is still scanned to its end, as the machine finds it, so the tokens after it are those Tokenizer produces; but it is passed to sink as an ERROR_T whose name is its first maxLength bytes (or a little fewer, so as not to cut a character in two), and the flag 'overlong' marks it until then.
+
+STATE:
+
+    private Consumer<Token> sink;      // receives the tokens
+    private SymbolTable     symbols;   // keywords and interned identifiers
+    private int             state;     // the state of the machine
+    private Token.TokenType type;      // the type recorded so far
+    private int             symbol;    // its symbol number
+    private TokenText       text;      // the bytes appended to the token
+    private int             maxLength; // bound on the bytes kept in text
+    private boolean         overlong;  // true if the token has outgrown
+                                       // maxLength
+    private long            offset;    // bytes consumed so far
+    private long            extra;     // continuation bytes consumed
+    private long            mark;      // offset of the first unit of the
+                                       // token
+    private long            markChars; // its character offset
+    private long            end;       // offset just past the last unit
+                                       // appended
+    private int             line;      // line of the next byte
+    private long            lineStart; // character offset of the start of
+                                       // that line
+    private int             tokenLine; // line of the token
+    private long            tokenLineStart;  // start of that line
+    private byte[]          unit;      // the bytes of the current character
+    private int             units;     // number of bytes in unit
+    private int             need;      // continuation bytes still needed
+    private int             partial;   // the character decoded so far
+    private boolean         input;     // false once endOfInput is called
+    private boolean         finished;  // true once EOF_T has been sent
+
+INTERFACE:
+
+    public PushTokenizer(Consumer<Token> sink, int maxLength)
+    // Pre:  maxLength >= 4
+    // Post: the tokenizer is at the start of an empty input AND its
+    //       tokens are passed to sink AND this.maxLength == maxLength
+
+    public PushTokenizer(Consumer<Token> sink)
+    // Post: as above with maxLength == defaultMaxLength, 1 MB
+
+    public void feed(ByteBuffer chunk)
+    // Pre:  endOfInput has not been called
+    // Post: the bytes chunk.position() .. chunk.limit()-1 are consumed
+    //       AND every token they complete has been passed to sink AND
+    //       chunk.position() == chunk.limit() -- Except throw
+    //       IllegalStateException if endOfInput has been called
+
+    public void endOfInput()
+    // Post: the remaining tokens, ending with EOF_T, have been passed to
+    //       sink
+
+    public boolean isFinished()
+    // Post: return true if EOF_T has been passed to sink
+
+HELPER METHODS:
+
+    private void decode(int b)
+    // Pre:  b is the next byte, as a value 0 .. 255
+    // Post: the character b completes, if any, has been scanned
+
+    private void scan(int ch, int count)
+    // Pre:  ch is the next character, made of the count bytes in unit
+    // Post: the transitions of the machine for ch have been made AND
+    //       any token they complete has been passed to sink
+
+    private void emit()
+    // Pre:  the machine is in DONE_S
+    // Post: the token has been passed to sink -- as an ERROR_T of the
+    //       bytes in text if overlong -- AND the machine is ready for
+    //       the next token
+
+CLASS INVARIANT:
+
+    mark <= offset AND text.count <= maxLength AND (finished OR the
+    machine is in a state other than DONE_S with the bytes of the token
+    so far in text -- the first of them only, if overlong)
+
+*/
+
+public class PushTokenizer {
+
+    // State
+
+    private static final char eofChar = (char)0;
+    private static final int  maxSymbols = 1 << 16;  // bound on the number
+                                                     // of interned names
+    public static final int   defaultMaxLength = 1 << 20;  // bound on the
+                                                           // bytes of a token
+
+    private final Consumer<Token> sink;
+    private final SymbolTable     symbols;
+    private final TokenText       text = new TokenText();
+    private final int             maxLength;  // bytes kept of a token
+    private boolean               overlong = false;  // past maxLength
+
+    private int             state  = ScanTable.START;
+    private Token.TokenType type   = Token.TokenType.ERROR_T;
+    private int             symbol = SymbolTable.NO_SYMBOL;
+    private long            offset = 0;     // bytes consumed so far
+    private long            extra  = 0;     // continuation bytes of them
+    private long            mark   = 0;     // start of the token
+    private long            markChars = 0;  // its character offset
+    private long            end    = 0;     // just past its last unit
+    private int             line   = 1;     // line of the next byte
+    private long            lineStart = 0;  // offset of the start of line
+    private int             tokenLine = 1;
+    private long            tokenLineStart = 0;
+
+    private final byte[]    unit = new byte[4];  // the current character
+    private int             units   = 0;    // number of bytes in unit
+    private int             need    = 0;    // continuation bytes needed
+    private int             partial = 0;    // the character so far
+    private boolean         input    = true;   // until endOfInput
+    private boolean         finished = false;  // once EOF_T is sent
+
+    // Constructor
+
+    public PushTokenizer(Consumer<Token> sink, int maxLength)
+    // Pre:  maxLength >= 4
+    // Post: the tokenizer is at the start of an empty input AND its
+    //       tokens are passed to sink AND this.maxLength == maxLength
+    {
+        if (maxLength < 4)  // room for any one character
+            throw new IllegalArgumentException("maxLength " + maxLength + " is less than 4");
+        this.sink = sink;
+        this.symbols = new SymbolTable(maxSymbols);
+        this.maxLength = maxLength;
+    }
+
+    public PushTokenizer(Consumer<Token> sink)
+    // Post: as above with maxLength == defaultMaxLength
+    {
+        this(sink, defaultMaxLength);
+    }
+
+    // Interface -- public methods
+
+    public void feed(ByteBuffer chunk)
+    // Pre:  endOfInput has not been called
+    // Post: the bytes of chunk are consumed AND every token they
+    //       complete has been passed to sink
+    {
+        if (!input)
+            throw new IllegalStateException("feed after endOfInput");
+        if (finished) {
+            chunk.position(chunk.limit());
+            return;
+        }
+        while (chunk.hasRemaining() && !finished) {
+            int b = chunk.get();
+            if (b >= 0 && need == 0) {  // ASCII
+                unit[0] = (byte)b;
+                scan(b, 1);
+            }
+            else
+                decode(b & 0xFF);
+        }
+        chunk.position(chunk.limit());
+    }
+
+    public void endOfInput()
+    // Post: the remaining tokens, ending with EOF_T, have been passed to
+    //       sink
+    {
+        input = false;
+        if (need != 0 && !finished) {  // truncated at end of input
+            need = 0;
+            scan(ByteScanBuffer.REPLACEMENT, units);
+        }
+        while (!finished)
+            scan(eofChar, 0);
+    }
+
+    public boolean isFinished()
+    // Post: return true if EOF_T has been passed to sink
+    {
+        return finished;
+    }
+
+    // Helpers
+
+    private void decode(int b)
+    // Pre:  b is the next byte, as a value 0 .. 255
+    // Post: the character b completes, if any, has been scanned
+    {
+        if (need != 0) {
+            if ((b & 0xC0) == 0x80) {
+                unit[units++] = (byte)b;
+                partial = (partial << 6) | (b & 0x3F);
+                if (--need != 0)
+                    return;
+                boolean bad = partial > 0xFFFF || Character.isSurrogate((char)partial)
+                              || partial < (units == 3 ? 0x800 : 0x80);
+                if (partial == ScanBuffer.BOM && offset == 0) {  // not a token
+                    offset = mark = markChars = end = lineStart = tokenLineStart = units;
+                    return;
+                }
+                scan(bad ? ByteScanBuffer.REPLACEMENT : partial, units);
+                return;
+            }
+            need = 0;  // the byte starts the next character
+            scan(ByteScanBuffer.REPLACEMENT, units);
+            if (finished)
+                return;
+            if (b < 0x80) {
+                unit[0] = (byte)b;
+                scan(b, 1);
+                return;
+            }
+        }
+
+        unit[0] = (byte)b;
+        units = 1;
+        if (b >= 0xC2 && b <= 0xDF)      { need = 1; partial = b & 0x1F; }
+        else if (b >= 0xE0 && b <= 0xEF) { need = 2; partial = b & 0x0F; }
+        else if (b >= 0xF0 && b <= 0xF4) { need = 3; partial = b & 0x07; }
+        else
+            scan(ByteScanBuffer.REPLACEMENT, 1);
+    }
+
+    private void scan(int ch, int count)
+    // Pre:  ch is the next character, made of the count bytes in unit
+    // Post: the transitions of the machine for ch have been made AND
+    //       any token they complete has been passed to sink
+    {
+        int more = (count > 1) ? count - 1 : 0;  // continuation bytes
+        boolean again = true;
+        while (again) {
+            again = false;
+            int entry = ScanTable.transition(state, (char)ch);
+            offset += count;
+            extra  += more;
+
+            if ((entry & ScanTable.APPEND) != 0) {
+                if (text.count + count <= maxLength)
+                    text.append(unit, count);
+                else
+                    overlong = true;  // scanned on, but not kept
+                end = offset;
+            }
+            else if ((entry & ScanTable.MARK) != 0) {
+                if ((entry & ScanTable.LINE) != 0) {
+                    line++;
+                    lineStart = offset - extra;
+                }
+                text.clear();  // the token starts after the blank
+                mark = offset;
+                markChars = offset - extra;
+                tokenLine = line;
+                tokenLineStart = lineStart;
+            }
+            else if ((entry & ScanTable.PUTBACK) != 0) {
+                if (ch != eofChar) {  // scanned again from START_S
+                    offset -= count;
+                    extra  -= more;
+                    again = true;
+                }
+            }
+            else if ((entry & ScanTable.LINE) != 0) {
+                line++;  // the end of line ends the token
+                lineStart = offset - extra;
+            }
+
+            int t = (entry >>> ScanTable.TYPE_SHIFT) & 0xFF;
+            if (t != 0)
+                type = ScanTable.types[t - 1];
+            else if ((entry & ScanTable.KEYWORD) != 0 && !overlong) {
+                symbol = symbols.lookup(text, 0, (int)(end - mark));
+                type = symbols.type(symbol);
+            }
+
+            state = entry & ScanTable.STATE_MASK;
+            if (state != ScanTable.DONE)
+                return;
+            emit();
+            if (finished)
+                return;
+        }
+    }
+
+    private void emit()
+    // Pre:  the machine is in DONE_S
+    // Post: the token has been passed to sink -- as an ERROR_T of the
+    //       bytes in text if overlong -- AND the machine is ready for
+    //       the next token
+    {
+        int length = (end > mark) ? (int)(end - mark) : 0;
+        long value = 0;  // as Tokenizer.number works it out
+        if (overlong) {
+            type   = Token.TokenType.ERROR_T;
+            length = text.count;  // the bytes kept
+        }
+        else if (type == Token.TokenType.INT_T) {
+            value = NumberParser.parseLong(text, 0, length);
+            if (value < 0)
+                type = Token.TokenType.ERROR_T;
+        }
+        else if (type == Token.TokenType.FLOAT_T) {
+            double d = NumberParser.parseDouble(text, 0, length);
+            if (Double.isInfinite(d))
+                type = Token.TokenType.ERROR_T;
+            value = Double.doubleToRawLongBits(d);
+        }
+        String name = (symbol != SymbolTable.NO_SYMBOL) ? symbols.name(symbol) : text.text(0, length);
+        sink.accept(new Token(type, name, mark, tokenLine, (int)(markChars - tokenLineStart) + 1, value));
+        finished = (type == Token.TokenType.EOF_T);
+
+        state  = ScanTable.START;
+        type   = Token.TokenType.ERROR_T;
+        symbol = SymbolTable.NO_SYMBOL;
+        overlong = false;
+        text.clear();
+        mark = end = offset;
+        markChars = offset - extra;
+        tokenLine = line;
+        tokenLineStart = lineStart;
+    }
+
+    // The bytes of the token so far, as seen by the SymbolTable and
+    // NumberParser
+
+    private static class TokenText implements UnitSource {
+
+        private byte[] bytes = new byte[64];
+        private int    count = 0;
+
+        void append(byte[] from, int n)
+        {
+            if (count + n > bytes.length)  // count + n <= maxLength
+                bytes = java.util.Arrays.copyOf(bytes, Math.max(2 * bytes.length, count + n));
+            System.arraycopy(from, 0, bytes, count, n);
+            count += n;
+        }
+
+        void clear()
+        {
+            count = 0;
+        }
+
+        public int unitAt(int index)
+        {
+            return bytes[index] & 0xFF;
+        }
+
+        public String text(int index, int length)
+        {
+            return new String(bytes, index, length, StandardCharsets.UTF_8);
+        }
+    }
+}
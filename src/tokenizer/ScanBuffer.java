@@ -0,0 +1,242 @@
+package tokenizer;
+
+import java.io.IOException;
+
+/**
+
+DESCRIPTION:
+
+This class defines the input seen by the Tokenizer: a buffer of input units (chars or bytes, depending on the subclass) with a cursor that is advanced by 'next' and moved back by 'back', and a mark at the first unit of the token currently being scanned.  The units from the mark onward stay in the buffer until the mark is moved, so the text of the current token can be read out of the buffer through 'unitAt' and 'text' once it has been scanned.
+
+There are two subclasses:
+
+    CharScanBuffer   reads large blocks of chars from a Reader
+    ByteScanBuffer   scans the bytes of a ByteBuffer (typically a memory
+                     mapped file) directly -- ASCII bytes are used as they
+                     are and only multi-byte UTF-8 sequences are decoded
+
+and IncrementalTokenizer has a private one over the chars of its text.
+
+Most of the units of an input are in runs -- of blanks, of identifier letters, of digits -- which the Tokenizer would otherwise take one call of 'next' and one table lookup at a time.  'skip' moves the cursor over a whole run at once: CharScanBuffer with a plain loop over its array, ByteScanBuffer eight bytes at a time with word-wide (SWAR) arithmetic.  A buffer without a fast path keeps the default, which skips nothing, and the Tokenizer then reads the run one unit at a time as before.
+
+The characters of a token can also be copied out of the buffer as UTF-8 with 'encode', for output which is written as bytes (TokenPrinter): the default encodes the units as chars, and ByteScanBuffer copies its bytes, which are UTF-8 already.
+
+Offsets are counted in units, but columns are counted in characters, so that a token has the same column however its input is read.  'charOffset' and 'markCharOffset' are the offsets of the cursor and the mark less the units before them which only continue a character -- the continuation bytes of UTF-8 -- so the difference of two of them is a number of characters.  The default is the offset itself, since a char is taken as a character (a surrogate pair as two); ByteScanBuffer counts the continuation bytes as it decodes, which it does only for a byte with the high bit set.
+
+A buffer which reads its input in blocks reports the time it waits for each block to the TokenizerMetrics passed to 'watch', if any; the default ignores it.
+
+STATE:
+
+The state is defined by the subclasses.
+
+INTERFACE:
+
+    static final int EOF = -1;
+    static final char BOM = '\uFEFF';   // the byte order mark
+
+    abstract int next() throws IOException
+    // Post: return the character at the cursor and advance the cursor
+    //       past it -- Except if the input is exhausted return EOF
+
+    abstract void back()
+    // Pre:  the last call to next did not return EOF
+    // Post: the cursor is moved back over the last character read
+
+    abstract void mark()
+    // Post: the mark is at the cursor
+
+    abstract int markIndex()
+    // Post: return the index in the buffer of the mark -- valid until
+    //       the next call to next
+
+    abstract long markOffset()
+    // Post: return the offset in the input of the mark
+
+    abstract long offset()
+    // Post: return the offset in the input of the cursor
+
+    long charOffset()
+    // Post: return offset() less the number of units before the cursor
+    //       which continue a character
+
+    long markCharOffset()
+    // Post: return markOffset() less the number of units before the
+    //       mark which continue a character
+
+    boolean plain(int index, int length)
+    // Pre:  index .. index+length-1 are in the buffer
+    // Post: return true if each of those units is a character of its
+    //       own, as text would return it
+
+The methods 'unitAt' and 'text' of UnitSource, which a ScanBuffer implements, read the units of its buffer:
+
+    public int unitAt(int index)
+    // Pre:  index is in the buffer
+    // Post: return the input unit at index -- a char, or a byte as a
+    //       value 0 .. 255
+
+    public String text(int index, int length)
+    // Pre:  index .. index+length-1 are in the buffer
+    // Post: return the characters of those units as a new String
+
+and the rest are
+
+    static final int BLANKS = 0, LETTERS = 1, DIGITS = 2;
+
+    int skip(int run)
+    // Pre:  run is BLANKS (blank or tab), LETTERS ([a-zA-Z]) or DIGITS
+    // Post: the cursor is moved past the units of that run which follow
+    //       it in the buffer AND return the number of units skipped --
+    //       the run may go on past the end of the buffer, and may be
+    //       left partly unskipped
+
+    void watch(TokenizerMetrics metrics)
+    // Post: the time spent waiting for input is reported to metrics,
+    //       unless it is null
+
+    int encode(int index, int length, byte[] dst, int at)
+    // Pre:  index .. index+length-1 are in the buffer AND dst has room
+    //       for 3 * length bytes from at
+    // Post: the characters of those units are in dst from at, in UTF-8,
+    //       AND return the index in dst just past them
+
+HELPER METHODS:
+
+    static boolean inRun(int run, int unit)
+    // Post: return true if unit is an ASCII character of run
+
+    static int encodeChar(int ch, byte[] dst, int at)
+    // Pre:  ch is a code point AND dst has room for its bytes from at
+    // Post: the UTF-8 bytes of ch are in dst from at AND return the
+    //       index in dst just past them
+
+    static int encodeChars(CharSequence s, byte[] dst, int at)
+    // Pre:  dst has room for 3 * s.length() bytes from at
+    // Post: the characters of s are in dst from at, in UTF-8, AND return
+    //       the index in dst just past them
+
+CLASS INVARIANT:
+
+    The mark is never after the cursor.
+
+*/
+
+abstract class ScanBuffer implements UnitSource {
+
+    static final int EOF = -1;
+    static final char BOM = '\uFEFF';   // the byte order mark
+
+    abstract int next() throws IOException;
+    abstract void back();
+    abstract void mark();
+    abstract int markIndex();
+    abstract long markOffset();
+    abstract long offset();
+
+    static final int BLANKS = 0, LETTERS = 1, DIGITS = 2;
+
+    private static final byte[] runs = new byte[128];  // bit run is set for
+                                                       // each unit of run
+    static {
+        for (char ch = 0; ch != 128; ch++) {
+            if (ch == ' ' || ch == '\t')
+                runs[ch] |= 1 << BLANKS;
+            if (Character.isLetter(ch))
+                runs[ch] |= 1 << LETTERS;
+            if (ch >= '0' && ch <= '9')
+                runs[ch] |= 1 << DIGITS;
+        }
+    }
+
+    long charOffset()
+    {
+        return offset();
+    }
+
+    long markCharOffset()
+    {
+        return markOffset();
+    }
+
+    boolean plain(int index, int length)
+    {
+        return true;
+    }
+
+    int skip(int run)
+    {
+        return 0;
+    }
+
+    void watch(TokenizerMetrics metrics)
+    {
+    }
+
+    int encode(int index, int length, byte[] dst, int at)
+    {
+        for (int i = 0; i != length; i++) {
+            int ch = unitAt(index + i);
+            if (Character.isHighSurrogate((char)ch) && i + 1 != length
+                    && Character.isLowSurrogate((char)unitAt(index + i + 1)))
+                ch = Character.toCodePoint((char)ch, (char)unitAt(index + ++i));
+            at = encodeChar(ch, dst, at);
+        }
+        return at;
+    }
+
+    static boolean inRun(int run, int unit)
+    // Post: return true if unit is an ASCII character of run
+    {
+        return unit < 128 && (runs[unit] & (1 << run)) != 0;
+    }
+
+    static int encodeChar(int ch, byte[] dst, int at)
+    // Pre:  ch is a code point AND dst has room for its bytes from at
+    // Post: the UTF-8 bytes of ch are in dst from at AND return the
+    //       index in dst just past them -- a lone surrogate is written
+    //       as '?'
+    {
+        if (ch < 0x80)
+            dst[at++] = (byte)ch;
+        else if (ch < 0x800) {
+            dst[at++] = (byte)(0xC0 | (ch >> 6));
+            dst[at++] = (byte)(0x80 | (ch & 0x3F));
+        }
+        else if (ch < 0x10000) {
+            if (Character.isSurrogate((char)ch))
+                dst[at++] = '?';
+            else {
+                dst[at++] = (byte)(0xE0 | (ch >> 12));
+                dst[at++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+                dst[at++] = (byte)(0x80 | (ch & 0x3F));
+            }
+        }
+        else {
+            dst[at++] = (byte)(0xF0 | (ch >> 18));
+            dst[at++] = (byte)(0x80 | ((ch >> 12) & 0x3F));
+            dst[at++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+            dst[at++] = (byte)(0x80 | (ch & 0x3F));
+        }
+        return at;
+    }
+
+    static int encodeChars(CharSequence s, byte[] dst, int at)
+    // Pre:  dst has room for 3 * s.length() bytes from at
+    // Post: the characters of s are in dst from at, in UTF-8, AND return
+    //       the index in dst just past them
+    {
+        int n = s.length();
+        for (int i = 0; i != n; i++) {
+            int ch = s.charAt(i);
+            if (ch < 0x80)
+                dst[at++] = (byte)ch;
+            else {
+                if (Character.isHighSurrogate((char)ch) && i + 1 != n
+                        && Character.isLowSurrogate(s.charAt(i + 1)))
+                    ch = Character.toCodePoint((char)ch, s.charAt(++i));
+                at = encodeChar(ch, dst, at);
+            }
+        }
+        return at;
+    }
+}
@@ -0,0 +1,341 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class holds the precomputed transition table for the finite state machine implemented by Tokenizer.nextToken.  Each input character is first reduced to a character class -- through the byte array 'asciiClass' for characters below 128 and through the Character methods (the slow path) for all others -- and the pair (state, class) then selects a single int entry of 'table' which packs everything the scanner must do for that transition:
+
+     bits  0 -  3     the next state
+     bit   4          APPEND  -- the character belongs to the token
+     bit   5          PUTBACK -- the character is pushed back on the input
+     bit   6          MARK    -- the token starts after the character
+     bit   7          KEYWORD -- the token type is found by string2Token
+     bits  8 - 15     1 + the ordinal of the token type to record, or 0
+                      if the type recorded so far is kept
+     bit   16         LINE    -- an end of line has been consumed
+
+The table is not written by hand: it is compiled, when this class is initialized, from the lexical spec 'rules' below -- one regular expression per token type, in the syntax described in DfaCompiler, which turns them into a minimized DFA whose states and character classes are those of the table.  Adding a token type requires only a new entry in 'rules'; the scanner's loop, and so its speed, are the same whatever the rules.
+
+The DFA is made into a table by maximal munch with one character of lookahead, which is what the Tokenizer's loop does:
+
+     1. a transition of the DFA APPENDs its character and records the
+        type of the rule accepted in the state it goes to -- ERROR_T if
+        none is; a state with no transitions out is not kept, and the
+        transition goes straight to DONE_S
+     2. a character with no transition ends the token: it is PUT BACK,
+        and the type recorded is that of the rule accepted in the state
+        -- ERROR_T if none is, so a number such as "7." which stops short
+        is an error; in START_S the character is APPENDed instead, as an
+        ERROR_T of its own
+     3. an IDENT_T records KEYWORD rather than a type when it ends, so
+        that the SymbolTable can give a keyword its own type
+     4. the characters of the rule with no type (the blanks) are passed
+        over in START_S with MARK, and an end of line there sets LINE;
+        the rule for EOF_T matches the eofChar, which is not APPENDed
+
+Each character above 127 is put in the class of 'a' if it is a letter, and otherwise in the class of OTHER, which only a negated set holds.  A digit above 127 (an Arabic-Indic digit, say) is not a digit of a number: the value of a number is worked out from its units as ASCII digits, so only 0 .. 9 may be in one.  An end of line is in a class of its own, and so is each character of 'delimiters' -- those after which a token never goes on, and at which a malformed token is cut in RECOVER mode.  For the rules below the compiled machine is
+
+     State       Class            Next        Action      Type
+     START_S     blank, eol       START_S     MARK
+                 end of file      DONE_S                  EOF_T
+                 .                S2 `.'      APPEND      ERROR_T
+                 0                S3 `0'      APPEND      INT_T
+                 1-9              S4 `1'      APPEND      INT_T
+                 letter           S5 `A'      APPEND
+                 = { } , ( ) + - * / %
+                                  DONE_S      APPEND      ASSIGN_T ..
+                 other            DONE_S      APPEND      ERROR_T
+     S2 `.'      digit            S6 `.0'     APPEND      FLOAT_T
+                 other            DONE_S      PUTBACK     ERROR_T
+     S3 `0'      digit            S7 `00'     APPEND      ERROR_T
+                 .                S2 `.'      APPEND      ERROR_T
+                 e E              S8 `0E'     APPEND      ERROR_T
+                 other            DONE_S      PUTBACK     INT_T
+     S4 `1'      digit            S4 `1'      APPEND      INT_T
+                 .                S2 `.'      APPEND      ERROR_T
+                 e E              S8 `0E'     APPEND      ERROR_T
+                 other            DONE_S      PUTBACK     INT_T
+     S5 `A'      letter           S5 `A'      APPEND
+                 other            DONE_S      PUTBACK     KEYWORD
+     S6 `.0'     digit            S6 `.0'     APPEND      FLOAT_T
+                 e E              S8 `0E'     APPEND      ERROR_T
+                 other            DONE_S      PUTBACK     FLOAT_T
+     S7 `00'     delimiter        DONE_S      PUTBACK     ERROR_T
+                 other            S7 `00'     APPEND      ERROR_T
+     S8 `0E'     + -              S9 `0E+'    APPEND      ERROR_T
+                 digit            S10 `0E0'   APPEND      FLOAT_T
+                 other            DONE_S      PUTBACK     ERROR_T
+     S9 `0E+'    digit            S10 `0E0'   APPEND      FLOAT_T
+                 other            DONE_S      PUTBACK     ERROR_T
+     S10 `0E0'   digit            S10 `0E0'   APPEND      FLOAT_T
+                 other            DONE_S      PUTBACK     FLOAT_T
+
+where each state is named by the shortest input which reaches it.  The state of a blank, letter or digit which loops back on itself is a run, which the Tokenizer may pass over with ScanBuffer.skip; 'runOf' gives the run of each state.
+
+STATE:
+
+    static final byte[] asciiClass;   // class of each character < 128
+    static final int[]  table;        // transitions, indexed by
+                                      // state * NUM_CLASSES + class
+    static final int[]  runOf;        // the run of each state, or NO_RUN
+    private static final String[] names;  // name of each state
+    private static final boolean[] delimiter;  // true for the delimiter
+                                               // classes
+
+INTERFACE:
+
+    static int classOf(char ch)
+    // Post: return the character class of ch
+
+    static int transition(int state, char ch)
+    // Pre:  0 <= state < NUM_STATES
+    // Post: return the table entry for state and the class of ch
+
+    static boolean isDelimiter(int cls)
+    // Post: return true if a token never continues past a character of
+    //       class cls -- a blank, end of line, end of file, = { } or ,
+
+    static String stateName(int state)
+    // Pre:  0 <= state < NUM_STATES
+    // Post: return the name of state, as in the table above
+
+HELPER METHODS:
+
+    private static int slowClass(char ch)
+    // Pre:  ch >= 128
+    // Post: return the character class of ch
+
+    private static int finish(int rule)
+    // Post: return the action and type bits which end a token in a state
+    //       accepting rule (-1 for none), as in 2 and 3 above
+
+    private static boolean selfLoops(int state, String chars, int action)
+    // Post: return true if every character of chars takes state back to
+    //       itself with action
+
+CLASS INVARIANT:
+
+The table is completely filled in by the static initializer and never changes afterwards.
+
+*/
+
+final class ScanTable {
+
+    // The lexical spec
+
+    static final String delimiters = " \t\n\0={},";
+
+    private static final Object[][] rules = {
+        { "[ \\t\\n]",                                    null },
+        { "\\0",                                          Token.TokenType.EOF_T },
+        { "[a-zA-Z]+",                                    Token.TokenType.IDENT_T },
+        { "0|[1-9][0-9]*",                                Token.TokenType.INT_T },
+        { "(0|[1-9][0-9]*)?\\.[0-9]+([eE][+\\-]?[0-9]+)?"
+          + "|(0|[1-9][0-9]*)[eE][+\\-]?[0-9]+",          Token.TokenType.FLOAT_T },
+        { "0[0-9][^" + delimiters + "]*",                 Token.TokenType.ERROR_T },
+        { "=",                                            Token.TokenType.ASSIGN_T },
+        { "{",                                            Token.TokenType.LCB_T },
+        { "}",                                            Token.TokenType.RCB_T },
+        { ",",                                            Token.TokenType.COMMA_T },
+        { "\\(",                                          Token.TokenType.LP_T },
+        { "\\)",                                          Token.TokenType.RP_T },
+        { "\\+",                                          Token.TokenType.ADD_T },
+        { "-",                                            Token.TokenType.SUB_T },
+        { "\\*",                                          Token.TokenType.MUL_T },
+        { "/",                                            Token.TokenType.DIV_T },
+        { "%",                                            Token.TokenType.MOD_T },
+    };
+
+    // States
+
+    static final int START = 0;
+    static final int DONE  = 1;
+    static final int NUM_STATES;
+
+    // Character classes
+
+    static final int NUM_CLASSES;
+    private static final int LETTER_C, OTHER_C;  // of characters above 127
+
+    // Entry layout
+
+    static final int STATE_MASK = 0xF;
+    static final int APPEND     = 1 << 4;
+    static final int PUTBACK    = 1 << 5;
+    static final int MARK       = 1 << 6;
+    static final int KEYWORD    = 1 << 7;
+    static final int TYPE_SHIFT = 8;
+    static final int LINE       = 1 << 16;
+
+    static final int NO_RUN = -1;
+
+    static final Token.TokenType[] types = Token.TokenType.values();
+
+    static final byte[] asciiClass = new byte[128];
+    static final int[]  table;
+    static final int[]  runOf;
+    private static final String[]  names;
+    private static final boolean[] delimiter;
+
+    static {
+        String[] patterns = new String[rules.length];
+        for (int r = 0; r != rules.length; r++)
+            patterns[r] = (String)rules[r][0];
+        DfaCompiler dfa = new DfaCompiler(patterns, STATE_MASK + 1, "\n", delimiters);
+
+        NUM_CLASSES = dfa.numClasses;
+        System.arraycopy(dfa.symbolClass, 0, asciiClass, 0, 128);
+        LETTER_C = asciiClass['a'];
+        OTHER_C  = dfa.symbolClass[DfaCompiler.OTHER];
+        int eol  = asciiClass['\n'];
+        delimiter = new boolean[NUM_CLASSES];
+        for (char ch : delimiters.toCharArray())
+            delimiter[asciiClass[ch]] = true;
+
+        // number the states, in breadth first order from START_S --
+        // DONE_S stands for every state with no transitions out, and a
+        // blank is passed over in START_S rather than given a state
+        int[] number = new int[dfa.numStates];
+        String[] example = new String[dfa.numStates];
+        int[] byNumber = new int[dfa.numStates + 2];
+        java.util.Arrays.fill(number, -1);
+        number[dfa.start] = START;
+        example[dfa.start] = "";
+        int states = DONE + 1;
+        java.util.List<Integer> order = new java.util.ArrayList<Integer>();
+        order.add(dfa.start);
+        for (int k = 0; k != order.size(); k++) {
+            int d = order.get(k);
+            for (int c = 0; c != NUM_CLASSES; c++) {
+                int e = dfa.next[d][c];
+                if (e == dfa.start)
+                    throw new IllegalStateException("a rule goes back to its start");
+                if (e < 0 || example[e] != null)
+                    continue;
+                char ch = (char)dfa.representative(c);
+                example[e] = example[d] + (ch == '\0' ? "" : String.valueOf(ch));
+                boolean terminal = true;
+                for (int t : dfa.next[e])
+                    terminal &= t < 0;
+                if (terminal)
+                    continue;
+                if (dfa.accept[e] >= 0 && rules[dfa.accept[e]][1] == null)
+                    throw new IllegalStateException("a blank must be a single character");
+                number[e] = states;
+                byNumber[states++] = e;
+                order.add(e);
+            }
+        }
+        if (dfa.accept[dfa.start] != -1)
+            throw new IllegalStateException("a rule matches the empty string");
+        NUM_STATES = states;
+
+        table = new int[NUM_STATES * NUM_CLASSES];
+        names = new String[NUM_STATES];
+        names[START] = "START_S";
+        names[DONE]  = "DONE_S";
+        for (int i = DONE + 1; i != NUM_STATES; i++)
+            names[i] = "S" + i + " `" + example[byNumber[i]] + "'";
+        for (int c = 0; c != NUM_CLASSES; c++)
+            table[DONE * NUM_CLASSES + c] = DONE;
+
+        for (int i = 0; i != NUM_STATES; i++) {
+            if (i == DONE)
+                continue;
+            int d = byNumber[i];
+            for (int c = 0; c != NUM_CLASSES; c++) {
+                int e = dfa.next[d][c];
+                int entry;
+                if (e < 0)
+                    entry = (i == START) ? DONE | APPEND | ((Token.TokenType.ERROR_T.ordinal() + 1) << TYPE_SHIFT)
+                                         : DONE | PUTBACK | finish(dfa.accept[d]);
+                else if (i == START && dfa.accept[e] >= 0 && rules[dfa.accept[e]][1] == null)
+                    entry = START | MARK | (c == eol ? LINE : 0);
+                else if (number[e] == -1)  // no transitions out
+                    entry = DONE | finish(dfa.accept[e])
+                          | (rules[dfa.accept[e]][1] == Token.TokenType.EOF_T ? 0 : APPEND);
+                else
+                    entry = number[e] | APPEND | (finish(dfa.accept[e]) & ~KEYWORD);
+                if (c == eol && (entry & APPEND) != 0)
+                    throw new IllegalStateException("a token may not hold an end of line");
+                table[i * NUM_CLASSES + c] = entry;
+            }
+        }
+
+        runOf = new int[NUM_STATES];
+        for (int i = 0; i != NUM_STATES; i++)
+            if (i == DONE)
+                runOf[i] = NO_RUN;
+            else if (selfLoops(i, "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ", APPEND))
+                runOf[i] = ScanBuffer.LETTERS;
+            else if (selfLoops(i, "0123456789", APPEND))
+                runOf[i] = ScanBuffer.DIGITS;
+            else if (selfLoops(i, " \t", MARK))
+                runOf[i] = ScanBuffer.BLANKS;
+            else
+                runOf[i] = NO_RUN;
+    }
+
+    private ScanTable() { }
+
+    // Interface
+
+    static int classOf(char ch)
+    // Post: return the character class of ch
+    {
+        return ch < 128 ? asciiClass[ch] : slowClass(ch);
+    }
+
+    static int transition(int state, char ch)
+    // Pre:  0 <= state < NUM_STATES
+    // Post: return the table entry for state and the class of ch
+    {
+        return table[state * NUM_CLASSES + classOf(ch)];
+    }
+
+    static boolean isDelimiter(int cls)
+    // Post: return true if a token never continues past a character of
+    //       class cls -- a blank, end of line, end of file, = { } or ,
+    {
+        return delimiter[cls];
+    }
+
+    static String stateName(int state)
+    // Pre:  0 <= state < NUM_STATES
+    // Post: return the name of state, as in the table above
+    {
+        return names[state];
+    }
+
+    // Helpers
+
+    private static int slowClass(char ch)
+    // Pre:  ch >= 128
+    // Post: return the character class of ch
+    {
+        return Character.isLetter(ch) ? LETTER_C : OTHER_C;
+    }
+
+    private static int finish(int rule)
+    // Post: return the action and type bits which end a token in a state
+    //       accepting rule (-1 for none)
+    {
+        Token.TokenType type = (rule < 0) ? Token.TokenType.ERROR_T : (Token.TokenType)rules[rule][1];
+        if (type == Token.TokenType.IDENT_T)
+            return KEYWORD;
+        return (type.ordinal() + 1) << TYPE_SHIFT;
+    }
+
+    private static boolean selfLoops(int state, String chars, int action)
+    // Post: return true if every character of chars takes state back to
+    //       itself with action
+    {
+        for (char ch : chars.toCharArray()) {
+            int entry = transition(state, ch);
+            if ((entry & STATE_MASK) != state || (entry & action) == 0)
+                return false;
+        }
+        return true;
+    }
+}
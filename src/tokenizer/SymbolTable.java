@@ -0,0 +1,254 @@
+package tokenizer;
+
+import java.util.Arrays;
+
+/**
+
+DESCRIPTION:
+
+This class implements the symbol table used by the Tokenizer to classify and intern words.  Each distinct word is given a symbol number, an interned String holding its characters and a token type.  The keywords are entered first, with their own token types (TYPE_T for "int" and "float"); every other word entered is an identifier and gets IDENT_T.  Words are looked up directly from the units (chars or bytes) in the input ScanBuffer -- or any other UnitSource -- so classifying an identifier never builds a String, and repeated identifiers share one String and one symbol number.
+
+The table is bounded: once 'capacity' symbols have been entered, words that are not already present are still classified (as IDENT_T) but are not interned, and lookup returns NO_SYMBOL for them.
+
+The arrays start small and are doubled as symbols are entered, up to the capacity, so a Tokenizer over a short input pays only for the names it sees.  'clear' empties the table back to the keywords but keeps the arrays, so a Tokenizer which is reset for another input starts with a table already grown to the size its inputs need, and with none of the names of the last one.  The words are found through an open addressing hash table 'slots' whose size is a power of two at least twice the length of the arrays, so probe sequences stay short.  The hash of a word is the same as String.hashCode.
+
+Adding a keyword requires only a new entry in the array 'keywords' below.
+
+STATE:
+
+    private String[]          names;   // names[s] is the word of symbol s
+    private char[][]          units;   // units[s] are its input units
+    private Token.TokenType[] types;   // types[s] is its token type
+    private int[]             hashes;  // hashes[s] is its hash code
+    private int[]             slots;   // 1 + symbol number, or 0 if empty
+    private int               size;    // number of symbols entered
+    private int               capacity;  // bound on size
+
+INTERFACE:
+
+    public static final int NO_SYMBOL = -1;
+
+    public SymbolTable(int capacity)
+    // Pre:  capacity >= number of keywords
+    // Post: the table holds exactly the keywords
+
+    int lookup(UnitSource in, int start, int length)
+    // Pre:  start .. start+length-1 are in in
+    // Post: return the symbol number of the units start .. start+length-1
+    //       of in, entering it as an identifier if it is new and the
+    //       table is not full -- Except return NO_SYMBOL if the table
+    //       is full
+
+    public Token.TokenType type(int symbol)
+    // Post: return types[symbol] or IDENT_T if symbol == NO_SYMBOL
+
+    public String name(int symbol)
+    // Pre:  0 <= symbol < size
+    // Post: return names[symbol]
+
+    public int size()
+    // Post: return size
+
+    void clear()
+    // Post: the table holds exactly the keywords -- the arrays keep
+    //       their lengths
+
+HELPER METHODS:
+
+    private void enter(String word, Token.TokenType type)
+    // Post: word is in the table with the given type
+
+    private int insert(int slot, int h, char[] key, String name)
+    // Pre:  slots[slot] is empty AND size < capacity
+    // Post: key is entered at slot as an identifier AND return its symbol
+
+    private void grow()
+    // Pre:  size == names.length < capacity
+    // Post: the arrays are doubled (up to capacity) and slots rebuilt
+
+    private int freeSlot(int h)
+    // Post: return the index of the empty slot at the end of the probe
+    //       sequence of h
+
+    private static int mix(int h)
+    // Post: return h with its high bits folded into the low bits
+
+    private static boolean same(char[] key, UnitSource in, int start, int length)
+    // Post: return true if key equals units start .. start+length-1 of in
+
+CLASS INVARIANT:
+
+    0 <= size <= names.length <= capacity AND
+    slots has at least one empty entry
+
+*/
+
+public class SymbolTable {
+
+    // State
+
+    public static final int NO_SYMBOL = -1;
+
+    private static final Object[][] keywords = {
+        { "int",   Token.TokenType.TYPE_T },
+        { "float", Token.TokenType.TYPE_T },
+    };
+
+    private String[]          names;   // names[s] is the word of symbol s
+    private char[][]          units;   // units[s] are its input units
+    private Token.TokenType[] types;   // types[s] is its token type
+    private int[]             hashes;  // hashes[s] is its hash code
+    private int[]             slots;   // 1 + symbol number, or 0 if empty
+    private int               size = 0;  // number of symbols entered
+    private int               capacity;  // bound on size
+
+    private static final int  initialLength = 64;
+
+    // Constructor
+
+    public SymbolTable(int capacity)
+    // Pre:  capacity >= number of keywords
+    // Post: the table holds exactly the keywords
+    {
+        this.capacity = Math.max(capacity, keywords.length);
+        int length = Math.min(this.capacity, initialLength);
+        names  = new String[length];
+        units  = new char[length][];
+        types  = new Token.TokenType[length];
+        hashes = new int[length];
+        slots  = new int[Integer.highestOneBit(length) * 4];
+
+        for (Object[] k : keywords)
+            enter((String)k[0], (Token.TokenType)k[1]);
+    }
+
+    // Interface -- public methods
+
+    int lookup(UnitSource in, int start, int length)
+    // Pre:  start .. start+length-1 are in in
+    // Post: return the symbol number of the units start .. start+length-1
+    //       of in, entering it as an identifier if it is new and the
+    //       table is not full -- Except return NO_SYMBOL if the table
+    //       is full
+    {
+        int h = 0;
+        for (int i = start; i != start + length; i++)
+            h = 31 * h + in.unitAt(i);
+
+        int mask = slots.length - 1;
+        int i = mix(h) & mask;
+        while (slots[i] != 0) {
+            int s = slots[i] - 1;
+            if (hashes[s] == h && same(units[s], in, start, length))
+                return s;
+            i = (i + 1) & mask;
+        }
+
+        if (size == names.length) {
+            if (size == capacity)
+                return NO_SYMBOL;
+            grow();
+            i = freeSlot(h);
+        }
+
+        char[] key = new char[length];
+        for (int k = 0; k != length; k++)
+            key[k] = (char)in.unitAt(start + k);
+        return insert(i, h, key, in.text(start, length));
+    }
+
+    public Token.TokenType type(int symbol)
+    // Post: return types[symbol] or IDENT_T if symbol == NO_SYMBOL
+    {
+        return (symbol == NO_SYMBOL) ? Token.TokenType.IDENT_T : types[symbol];
+    }
+
+    public String name(int symbol)
+    // Pre:  0 <= symbol < size
+    // Post: return names[symbol]
+    {
+        return names[symbol];
+    }
+
+    public int size() { return size; }
+    // Post: return size
+
+    void clear()
+    // Post: the table holds exactly the keywords -- the arrays keep
+    //       their lengths
+    {
+        if (size == keywords.length)
+            return;
+        Arrays.fill(names, null);
+        Arrays.fill(units, null);
+        Arrays.fill(types, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+        for (Object[] k : keywords)
+            enter((String)k[0], (Token.TokenType)k[1]);
+    }
+
+    // Helpers
+
+    private void enter(String word, Token.TokenType type)
+    // Post: word is in the table with the given type
+    {
+        int h = word.hashCode();
+        types[insert(freeSlot(h), h, word.toCharArray(), word)] = type;
+    }
+
+    private void grow()
+    // Pre:  size == names.length < capacity
+    // Post: the arrays are doubled (up to capacity) and slots rebuilt
+    {
+        int length = (int)Math.min((long)names.length * 2, capacity);
+        names  = Arrays.copyOf(names, length);
+        units  = Arrays.copyOf(units, length);
+        types  = Arrays.copyOf(types, length);
+        hashes = Arrays.copyOf(hashes, length);
+        slots  = new int[Integer.highestOneBit(length) * 4];
+        for (int s = 0; s != size; s++)
+            slots[freeSlot(hashes[s])] = s + 1;
+    }
+
+    private int freeSlot(int h)
+    // Post: return the index of the empty slot at the end of the probe
+    //       sequence of h
+    {
+        int mask = slots.length - 1;
+        int i = mix(h) & mask;
+        while (slots[i] != 0)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    private int insert(int slot, int h, char[] key, String name)
+    // Pre:  slots[slot] is empty AND size < capacity
+    // Post: key is entered at slot as an identifier AND return its symbol
+    {
+        int s = size++;
+        names[s]  = name;
+        units[s]  = key;
+        types[s]  = Token.TokenType.IDENT_T;
+        hashes[s] = h;
+        slots[slot] = s + 1;
+        return s;
+    }
+
+    private static int mix(int h)
+    // Post: return h with its high bits folded into the low bits
+    {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean same(char[] key, UnitSource in, int start, int length)
+    // Post: return true if key equals units start .. start+length-1 of in
+    {
+        if (key.length != length)
+            return false;
+        for (int i = 0; i != length; i++)
+            if (key[i] != in.unitAt(start + i))
+                return false;
+        return true;
+    }
+}
@@ -8,23 +8,41 @@ This class defines the structure of a Token object for production by the tokeniz
 
 STATE:
 
-The state of an object includes a variable 'type', holding this token's TokenType value, and a variable 'name', which holds the String value of the token.  
+The state of an object includes a variable 'type', holding this token's TokenType value, and a variable 'name', which holds the String value of the token, along with the position of the token in its input: the offset of its first character (in input units -- chars, or bytes for a mapped file) and the line and column of that character, both counted from 1.  The column is counted in characters, so it does not depend on how the input was read.  A token built without a position has offset -1 and line and column 0.
+
+An INT_T or FLOAT_T token also has a numeric value, held in 'value' as a long or as the bits of a double.  A token made by the Tokenizer is given the value the scanner worked out; one made from its text alone (read back from a token stream, say) works it out from 'name' the first time it is asked for.
 
 	private TokenType type;  // type of this particular token
 	private String    name;  // string of characters associated with
 						     // this particular token
+	private long      offset;  // offset in the input of the token
+	private int       line;    // line of its first character
+	private int       column;  // column of its first character
+	private long      value;   // the value of a number, as a long or
+	                           // the bits of a double
+	private boolean   valued;  // true once value has been set
    
 INTERFACE:
 
 There are two components to the interface.  The following enumerated type defines the legal type names of tokens.  
 
-	public enum TokenType { IDENT_T, TYPE_T, ASSIGN_T, COMMA_T,
-	                        RCB_T, LCB_T, ERROR_T, EOT_T };
+	public enum TokenType { IDENT_T, TYPE_T, ERROR_T, ASSIGN_T, 
+	                        RCB_T, LCB_T, COMMA_T, EOF_T, LP_T, RP_T,
+	                        ADD_T, SUB_T, MUL_T, DIV_T, MOD_T, INT_T, FLOAT_T,
+	                        @Deprecated PERI_T };
+
+PERI_T is never produced -- a '.' which does not start a number is an ERROR_T -- and is kept, deprecated, only so that code which names it still compiles; it is the last constant, so it moves no other ordinal.
 
-The interface of this class includes the constructor 
+The interface of this class includes the constructors
     
     	public Token(TokenType t, String s)
 
+    	public Token(TokenType t, String s, long offset, int line, int column)
+
+    	public Token(TokenType t, String s, long offset, int line, int column,
+    	             long value)
+    		// Pre:  value is the value of a number as TokenCursor holds it
+
 and the following methods.
 		
 	public TokenType getType()
@@ -35,6 +53,19 @@ and the following methods.
 		// Pre:  name has a value
 		// Post: return name
 
+	public long getOffset()
+	public int  getLine()
+	public int  getColumn()
+		// Post: return offset, line and column
+
+	public long getLong()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number, a FLOAT_T cut to a long
+
+	public double getDouble()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number as a double
+
 	public String toString() 
 		// Pre:  type and name have values
 		// Post: return string containing character form of
@@ -42,7 +73,8 @@ and the following methods.
    
 HELPER METHODS:
    
-There are no helper methods.
+	private long value()
+		// Post: return value, worked out from name if it is not set
 
 CLASS INVARIANT:  
 
@@ -57,15 +89,38 @@ public class Token {
 		
 	public enum TokenType { IDENT_T, TYPE_T, ERROR_T, ASSIGN_T, 
 	                        RCB_T, LCB_T, COMMA_T, EOF_T, LP_T, RP_T,
-							ADD_T, SUB_T, MUL_T, DIV_T, MOD_T, INT_T, FLOAT_T, PERI_T };
+							ADD_T, SUB_T, MUL_T, DIV_T, MOD_T, INT_T, FLOAT_T,
+							@Deprecated PERI_T };  // never produced
 
 	private TokenType  type;  // type of this particular token
 	private String     name;  // string of characters associated with
 					     	 // this particular token
-
-    // Constructor
+	private long       offset = -1;  // offset in the input of the token
+	private int        line   = 0;   // line of its first character
+	private int        column = 0;   // column of its first character
+	private long       value  = 0;   // value of a number -- a long, or
+	                                 // the bits of a double
+	private boolean    valued = false;  // true once value is set
+
+    // Constructors
     
 	public Token(TokenType t, String s) { type = t; name = s; }
+
+	public Token(TokenType t, String s, long offset, int line, int column)
+	{
+		this(t, s);
+		this.offset = offset;
+		this.line   = line;
+		this.column = column;
+	}
+
+	public Token(TokenType t, String s, long offset, int line, int column, long value)
+		// Pre:  value is the value of a number as TokenCursor holds it
+	{
+		this(t, s, offset, line, column);
+		this.value  = value;
+		this.valued = true;
+	}
   
     // Interface -- public methods
     
@@ -75,6 +130,24 @@ public class Token {
 	public String    getName() { return name; }
 		// Pre:  name has a value
 		// Post: return name
+	public long      getOffset() { return offset; }
+	public int       getLine()   { return line; }
+	public int       getColumn() { return column; }
+		// Post: return offset, line and column
+
+	public long getLong()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number, a FLOAT_T cut to a long
+	{
+		return (type == TokenType.FLOAT_T) ? (long)getDouble() : value();
+	}
+
+	public double getDouble()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number as a double
+	{
+		return (type == TokenType.FLOAT_T) ? Double.longBitsToDouble(value()) : value();
+	}
 
 	public String toString() 
 		// Pre:  type and name have values
@@ -83,4 +156,22 @@ public class Token {
 	{
 		return type.toString() + "(  " + name + " )";
 	}
+
+    // Helpers
+
+	private long value()
+		// Post: return value, worked out from name if it is not set
+	{
+		if (!valued) {
+			try {
+				if (type == TokenType.INT_T)
+					value = Long.parseLong(name);
+				else if (type == TokenType.FLOAT_T)
+					value = Double.doubleToRawLongBits(Double.parseDouble(name));
+			}
+			catch (NumberFormatException e) { }  // not a number -- 0
+			valued = true;
+		}
+		return value;
+	}
 }
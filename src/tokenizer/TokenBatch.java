@@ -0,0 +1,135 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class defines a reusable block of tokens filled by Tokenizer.nextTokens.  The tokens are held in parallel primitive arrays -- one entry per token for its type ordinal, the offset in the input of its first unit, its length in units, the line and column of its first unit, and the value of a number -- so a parser can consume tokens a block at a time without any objects being created.  The text of a token is not copied; it can be recovered from the input with the offset and length.
+
+STATE:
+
+    private byte[] type;     // ordinal of the Token.TokenType of each token
+    private long[] start;    // offset in the input of each token
+    private int[]  length;   // length in units of each token
+    private int[]  line;     // line of the first unit of each token
+    private int[]  column;   // column of the first unit of each token
+    private long[] value;    // value of each INT_T, or the bits of the
+                             // double value of each FLOAT_T
+    private int    size;     // number of tokens in the batch
+
+INTERFACE:
+
+    public TokenBatch(int capacity)
+    // Pre:  capacity > 0
+    // Post: size == 0 AND the arrays have capacity entries
+
+    public int size()
+    public int capacity()
+
+    public Token.TokenType getType(int i)
+    public int  getTypeOrdinal(int i)
+    public long getStart(int i)
+    public int  getLength(int i)
+    public int  getLine(int i)
+    public int  getColumn(int i)
+    // Pre:  0 <= i < size
+    // Post: return the corresponding entry of token i
+
+    public long   getLong(int i)
+    public double getDouble(int i)
+    // Pre:  0 <= i < size AND token i is an INT_T or FLOAT_T
+    // Post: return its value, as for TokenCursor
+
+HELPER METHODS:
+
+    void clear()
+    // Post: size == 0
+
+    void add(Token.TokenType type, long start, int length, int line, int column,
+             long value)
+    // Pre:  size < capacity
+    // Post: the token is entry size of the arrays AND size is incremented
+
+CLASS INVARIANT:
+
+    0 <= size <= capacity
+
+*/
+
+public class TokenBatch {
+
+    // State
+
+    private static final Token.TokenType[] types = Token.TokenType.values();
+
+    private final byte[] type;     // ordinal of the type of each token
+    private final long[] start;    // offset in the input of each token
+    private final int[]  length;   // length in units of each token
+    private final int[]  line;     // line of the first unit of each token
+    private final int[]  column;   // column of the first unit of each token
+    private final long[] value;    // value of each number, as TokenCursor
+    private int          size = 0; // number of tokens in the batch
+
+    // Constructor
+
+    public TokenBatch(int capacity)
+    // Pre:  capacity > 0
+    // Post: size == 0 AND the arrays have capacity entries
+    {
+        type   = new byte[capacity];
+        start  = new long[capacity];
+        length = new int[capacity];
+        line   = new int[capacity];
+        column = new int[capacity];
+        value  = new long[capacity];
+    }
+
+    // Interface -- public methods
+
+    public int size()     { return size; }
+    public int capacity() { return type.length; }
+
+    public Token.TokenType getType(int i) { return types[type[i]]; }
+    public int  getTypeOrdinal(int i)     { return type[i]; }
+    public long getStart(int i)           { return start[i]; }
+    public int  getLength(int i)          { return length[i]; }
+    public int  getLine(int i)            { return line[i]; }
+    public int  getColumn(int i)          { return column[i]; }
+    // Pre:  0 <= i < size
+    // Post: return the corresponding entry of token i
+
+    public long getLong(int i)
+    // Pre:  0 <= i < size AND token i is an INT_T or FLOAT_T
+    // Post: return its value, a FLOAT_T cut to a long
+    {
+        return (type[i] == Token.TokenType.FLOAT_T.ordinal()) ? (long)Double.longBitsToDouble(value[i]) : value[i];
+    }
+
+    public double getDouble(int i)
+    // Pre:  0 <= i < size AND token i is an INT_T or FLOAT_T
+    // Post: return its value as a double
+    {
+        return (type[i] == Token.TokenType.FLOAT_T.ordinal()) ? Double.longBitsToDouble(value[i]) : value[i];
+    }
+
+    // Helpers
+
+    void clear()
+    // Post: size == 0
+    {
+        size = 0;
+    }
+
+    void add(Token.TokenType t, long s, int n, int l, int c, long v)
+    // Pre:  size < capacity
+    // Post: the token is entry size of the arrays AND size is incremented
+    {
+        type[size]   = (byte)t.ordinal();
+        start[size]  = s;
+        length[size] = n;
+        line[size]   = l;
+        column[size] = c;
+        value[size]  = v;
+        size++;
+    }
+}
@@ -0,0 +1,276 @@
+package tokenizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+
+DESCRIPTION:
+
+This class is an in-process cache from the contents of an input to its tokens, for a service which is sent the same few inputs over and over.  An input is looked up by the SHA-256 hash of its bytes; on a hit its tokens are replayed and on a miss the input is tokenized once and its tokens saved for the next time.
+
+The tokens are saved in the compact form written by TokenStreamWriter -- a few bytes per token, in one byte array per input -- and replayed through a TokenStreamReader, so an entry holds no Token objects and its size in bytes is known exactly.  The cache is bounded by the total size of its entries, 'maxBytes', and evicts the least recently used entries to stay within it.
+
+The entries are split by hash into 'stripes' segments, each a LinkedHashMap in access order with its own lock and its own share of maxBytes, so lookups of different inputs rarely wait for each other and eviction is LRU within each segment.  An input is tokenized outside the lock, so two threads which miss on the same new input at once may both tokenize it; the second result simply replaces the first.  The numbers of hits, misses and evictions are kept in LongAdder counters, which many threads can update at once without contending.
+
+STATE:
+
+    private Segment[] segments;   // the stripes of the cache
+    private LongAdder hits;       // lookups which found an entry
+    private LongAdder misses;     // lookups which did not
+    private LongAdder evictions;  // entries evicted to make room
+
+INTERFACE:
+
+    public TokenCache(long maxBytes, int stripes)
+    // Pre:  maxBytes > 0 AND stripes > 0
+    // Post: the cache is empty AND holds at most maxBytes of entries, in
+    //       stripes segments
+
+    public TokenCache(long maxBytes)
+    // Post: as above with 16 stripes
+
+    public TokenSource open(ByteBuffer content)
+    // Post: return a TokenSource for the tokens of the bytes
+    //       content.position() .. content.limit()-1 (ASCII or UTF-8),
+    //       saving them if they were not saved already
+
+    public TokenSource open(byte[] content)
+    // Post: as above for all of content
+
+    public long hits(), misses(), evictions()
+    // Post: return the counter
+
+    public long size()
+    // Post: return the total size in bytes of the entries
+
+    public int count()
+    // Post: return the number of entries
+
+    public String toString()
+    // Post: return the counters, count and size
+
+HELPER METHODS:
+
+    private static byte[] hash(ByteBuffer content)
+    // Post: return the SHA-256 of the bytes of content
+
+    private static byte[] tokenize(ByteBuffer content)
+    // Post: return the token stream of the bytes of content
+
+The nested class Segment holds the entries of one stripe, and Key wraps a hash so that it can be a key of a map.
+
+CLASS INVARIANT:
+
+    the entries of each segment total at most maxBytes / stripes bytes
+
+*/
+
+public class TokenCache {
+
+    // State
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Constructors
+
+    public TokenCache(long maxBytes, int stripes)
+    // Pre:  maxBytes > 0 AND stripes > 0
+    // Post: the cache is empty AND holds at most maxBytes of entries, in
+    //       stripes segments
+    {
+        segments = new Segment[stripes];
+        for (int i = 0; i != stripes; i++)
+            segments[i] = new Segment(maxBytes / stripes);
+    }
+
+    public TokenCache(long maxBytes)
+    // Post: as above with 16 stripes
+    {
+        this(maxBytes, 16);
+    }
+
+    // Interface -- public methods
+
+    public TokenSource open(ByteBuffer content)
+    // Post: return a TokenSource for the tokens of the bytes of content,
+    //       saving them if they were not saved already
+    {
+        Key key = new Key(hash(content));
+        Segment s = segments[(key.hashCode() & 0x7FFFFFFF) % segments.length];
+
+        byte[] stream = s.get(key);
+        if (stream != null)
+            hits.increment();
+        else {
+            misses.increment();
+            stream = tokenize(content);
+            s.put(key, stream);
+        }
+
+        try {
+            return new TokenStreamReader(ByteBuffer.wrap(stream));
+        }
+        catch (IOException e) {  // the stream was written by this class
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public TokenSource open(byte[] content)
+    // Post: as above for all of content
+    {
+        return open(ByteBuffer.wrap(content));
+    }
+
+    public long hits()      { return hits.sum(); }
+    public long misses()    { return misses.sum(); }
+    public long evictions() { return evictions.sum(); }
+    // Post: return the counter
+
+    public long size()
+    // Post: return the total size in bytes of the entries
+    {
+        long n = 0;
+        for (Segment s : segments)
+            n += s.size();
+        return n;
+    }
+
+    public int count()
+    // Post: return the number of entries
+    {
+        int n = 0;
+        for (Segment s : segments)
+            n += s.count();
+        return n;
+    }
+
+    public String toString()
+    // Post: return the counters, count and size
+    {
+        return hits() + " hits, " + misses() + " misses, " + evictions() + " evictions, "
+               + count() + " entries, " + size() + " bytes";
+    }
+
+    // Helpers
+
+    private static byte[] hash(ByteBuffer content)
+    // Post: return the SHA-256 of the bytes of content
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.duplicate());
+            return digest.digest();
+        }
+        catch (NoSuchAlgorithmException e) {  // every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] tokenize(ByteBuffer content)
+    // Post: return the token stream of the bytes of content
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + content.remaining());
+        try {
+            TokenStreamWriter.copy(new Tokenizer(new ByteScanBuffer(content).skipBom(), false), out);
+        }
+        catch (IOException e) {  // neither side does any I/O
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // The hash of an input, as a key
+
+    private static final class Key {
+
+        private final byte[] hash;
+        private final int    code;
+
+        Key(byte[] hash)
+        {
+            this.hash = hash;
+            this.code = Arrays.hashCode(hash);
+        }
+
+        public int hashCode()
+        {
+            return code;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof Key && Arrays.equals(hash, ((Key)o).hash);
+        }
+    }
+
+    // One stripe of the cache -- every method holds the lock of the
+    // segment
+
+    private final class Segment {
+
+        private final long maxBytes;  // bound on bytes
+        private long       bytes = 0; // total size of the entries
+        private final LinkedHashMap<Key,byte[]> entries =
+            new LinkedHashMap<Key,byte[]>(16, 0.75f, true);  // LRU first
+
+        Segment(long maxBytes)
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(Key key)
+        {
+            return entries.get(key);
+        }
+
+        synchronized void put(Key key, byte[] stream)
+        // Post: stream is the entry of key, unless it alone is larger
+        //       than maxBytes AND the least recently used entries have
+        //       been evicted to keep bytes <= maxBytes
+        {
+            long weight = weight(stream);
+            if (weight > maxBytes)
+                return;
+
+            byte[] old = entries.put(key, stream);
+            if (old != null)
+                bytes -= weight(old);
+            bytes += weight;
+
+            Iterator<Map.Entry<Key,byte[]>> lru = entries.entrySet().iterator();
+            while (bytes > maxBytes) {
+                bytes -= weight(lru.next().getValue());
+                lru.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized long size()
+        {
+            return bytes;
+        }
+
+        synchronized int count()
+        {
+            return entries.size();
+        }
+
+        private long weight(byte[] stream)
+        // Post: return the bytes held for an entry -- its stream and key
+        {
+            return stream.length + 32;
+        }
+    }
+}
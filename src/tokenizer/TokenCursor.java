@@ -0,0 +1,242 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class defines a reusable (flyweight) view of the token most recently scanned by a Tokenizer.  Unlike a Token object it does not own its characters: it records the token's type, the offset in the input of its first unit and its length in units, and reads the units directly out of the Tokenizer's ScanBuffer.  For character input a unit is a char; for byte input it is a byte, and a character may take several.  The CharSequence methods always see the characters of the token -- the same ones getName returns -- so a cursor can be compared with contentEquals, matched with a regular expression or appended to a StringBuilder whatever the input: while each unit of the token is a character of its own (any token of character input, and an ASCII token of byte input) they read the units where they lie, and otherwise the token is decoded into 'decoded' the first time one of them is called, and they read that.  A consumer can therefore walk any number of tokens through a single TokenCursor without allocating anything.  The value of an INT_T or FLOAT_T token is worked out by the Tokenizer as it scans, and read with getLong or getDouble, so a number need never become a String either.
+
+The view is only valid until the next call to the Tokenizer which filled it -- a consumer which must keep the text of a token calls getName (or toString), which copies the characters into a new String.
+
+STATE:
+
+	private TokenType type;    // type of the current token
+	private ScanBuffer in;     // buffer holding the units of the token
+	private int       index;   // index in the buffer of the first unit
+	private int       length;  // number of units in the token
+	private int       chars;   // number of characters in the token, or
+	                           // -1 until length or charAt is called
+	private String    decoded; // the characters of the token, if they
+	                           // are not its units -- else null
+	private long      offset;  // offset in the input of the first unit
+	private int       line;    // line of the first unit
+	private int       column;  // column of the first unit
+	private long      value;   // value of an INT_T, or the bits of the
+	                           // double value of a FLOAT_T
+	private int       symbol;  // symbol number of an IDENT_T or TYPE_T
+	                           // token, or SymbolTable.NO_SYMBOL
+	private SymbolTable symbols;  // table in which symbol is entered
+
+INTERFACE:
+
+	public Token.TokenType getType()
+		// Post: return type
+
+	public long getOffset()
+		// Post: return offset
+
+	public int getLine()
+	public int getColumn()
+		// Post: return line and column
+
+	public int getSymbol()
+		// Post: return symbol
+
+	public long getLong()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number, a FLOAT_T cut to a long
+
+	public double getDouble()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number as a double
+
+	public int length()
+		// Post: return the number of characters in the token
+
+	public char charAt(int i)
+		// Pre:  0 <= i < length()
+		// Post: return the i-th character of the token
+
+	public CharSequence subSequence(int start, int end)
+		// Pre:  0 <= start <= end <= length()
+		// Post: return a copy of the characters start .. end-1
+
+	public String getName()
+		// Post: return the interned name of symbol if there is one, else
+		//       a new String holding the characters of the token
+
+	public Token toToken()
+		// Post: return a Token with the same type, name and position
+
+	public String toString()
+		// Post: return getName()
+
+HELPER METHODS:
+
+	void set(Token.TokenType type, ScanBuffer in, int index, int length,
+	         long offset, int line, int column, long value, int symbol,
+	         SymbolTable symbols)
+		// Post: the cursor views the given token -- called by Tokenizer
+
+	int units()
+		// Post: return length, the number of units in the token
+
+	int encode(byte[] dst, int at)
+		// Pre:  dst has room for 3 * units() bytes from at
+		// Post: the characters of the token are in dst from at, in UTF-8,
+		//       AND return the index in dst just past them
+
+	long value()
+		// Post: return value
+
+	private void decode()
+		// Post: chars is the number of characters in the token AND
+		//       decoded holds them, unless each unit is one of them
+
+CLASS INVARIANT:
+
+	index .. index+length-1 are in the buffer of in AND
+	chars == -1 OR (decoded == null AND chars == length) OR
+	decoded.length() == chars
+
+*/
+
+public class TokenCursor implements CharSequence {
+
+    // State
+
+	private Token.TokenType type   = Token.TokenType.ERROR_T;
+	private ScanBuffer      in;
+	private int             index  = 0;
+	private int             length = 0;
+	private int             chars  = 0;
+	private String          decoded = null;
+	private long            offset = 0;
+	private int             line   = 0;
+	private int             column = 0;
+	private long            value  = 0;
+	private int             symbol = SymbolTable.NO_SYMBOL;
+	private SymbolTable     symbols;
+
+    // Interface -- public methods
+
+	public Token.TokenType getType() { return type; }
+		// Post: return type
+	public long getOffset() { return offset; }
+		// Post: return offset
+	public int getLine() { return line; }
+	public int getColumn() { return column; }
+		// Post: return line and column
+	public int getSymbol() { return symbol; }
+		// Post: return symbol
+
+	public long getLong()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number, a FLOAT_T cut to a long
+	{
+		return (type == Token.TokenType.FLOAT_T) ? (long)Double.longBitsToDouble(value) : value;
+	}
+
+	public double getDouble()
+		// Pre:  type is INT_T or FLOAT_T
+		// Post: return the value of the number as a double
+	{
+		return (type == Token.TokenType.FLOAT_T) ? Double.longBitsToDouble(value) : value;
+	}
+	public int length()
+		// Post: return the number of characters in the token
+	{
+		if (chars < 0)
+			decode();
+		return chars;
+	}
+
+	public char charAt(int i)
+		// Pre:  0 <= i < length()
+		// Post: return the i-th character of the token
+	{
+		if (chars < 0)
+			decode();
+		if (i < 0 || i >= chars)
+			throw new IndexOutOfBoundsException("index " + i + ", length " + chars);
+		return (decoded != null) ? decoded.charAt(i) : (char)in.unitAt(index + i);
+	}
+
+	public CharSequence subSequence(int start, int end)
+		// Pre:  0 <= start <= end <= length()
+		// Post: return a copy of the characters start .. end-1
+	{
+		if (chars < 0)
+			decode();
+		if (start < 0 || start > end || end > chars)
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + chars);
+		return (decoded != null) ? decoded.substring(start, end) : in.text(index + start, end - start);
+	}
+
+	public String getName()
+		// Post: return the interned name of symbol if there is one, else
+		//       a new String holding the characters of the token
+	{
+		if (symbol != SymbolTable.NO_SYMBOL)
+			return symbols.name(symbol);
+		return in.text(index, length);
+	}
+
+	public Token toToken()
+		// Post: return a Token with the same type, name and position
+	{
+		return new Token(type, getName(), offset, line, column, value);
+	}
+
+	public String toString()
+		// Post: return getName()
+	{
+		return getName();
+	}
+
+    // Helpers
+
+	void set(Token.TokenType type, ScanBuffer in, int index, int length, long offset,
+	         int line, int column, long value, int symbol, SymbolTable symbols)
+		// Post: the cursor views the given token -- called by Tokenizer
+	{
+		this.type   = type;
+		this.in     = in;
+		this.index  = index;
+		this.length = length;
+		this.chars  = -1;
+		this.decoded = null;
+		this.offset = offset;
+		this.line   = line;
+		this.column = column;
+		this.value  = value;
+		this.symbol = symbol;
+		this.symbols = symbols;
+	}
+
+	int units() { return length; }
+		// Post: return length, the number of units in the token
+
+	int encode(byte[] dst, int at)
+		// Pre:  dst has room for 3 * units() bytes from at
+		// Post: the characters of the token are in dst from at, in UTF-8,
+		//       AND return the index in dst just past them
+	{
+		return in.encode(index, length, dst, at);
+	}
+
+	long value() { return value; }
+		// Post: return value
+
+	private void decode()
+		// Post: chars is the number of characters in the token AND
+		//       decoded holds them, unless each unit is one of them
+	{
+		if (in.plain(index, length))
+			chars = length;
+		else {
+			decoded = in.text(index, length);
+			chars = decoded.length();
+		}
+	}
+}
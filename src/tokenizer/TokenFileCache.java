@@ -0,0 +1,127 @@
+package tokenizer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+
+DESCRIPTION:
+
+This class keeps the token streams of input files in a directory, so that a file which has been tokenized once is never scanned again while its contents stay the same.  A stream is saved under the SHA-256 hash of TokenStreamWriter.VERSION and the bytes of the file:
+
+    dir/<64 hex digits>.tok
+
+so a file which is changed, renamed or copied is found by what it holds rather than by its name, and the streams of an older version of the Tokenizer are simply never looked up again.  'open' hashes the file and replays the saved stream if there is one; otherwise it tokenizes the file, saves the stream (under a temporary name which is moved into place, so a reader never sees half a stream, and two processes filling the same entry do no harm) and replays that.  A saved stream is replayed from a file mapped in windows, so a stream of any size, 2 GB or more, can be cached.
+
+Hashing reads every byte of the file, but does far less work per byte than the Tokenizer.
+
+STATE:
+
+    private Path dir;    // the directory of saved streams
+
+INTERFACE:
+
+    public TokenFileCache(Path dir) throws IOException
+    // Post: dir exists AND this.dir == dir
+
+    public TokenSource open(Path file) throws IOException
+    // Pre:  file names a readable regular file
+    // Post: return a TokenSource for the tokens of file, saving them in
+    //       dir if they were not there already
+
+    public Path entry(Path file) throws IOException
+    // Post: return the name under which the stream of file is saved
+
+HELPER METHODS:
+
+    private static String hash(Path file) throws IOException
+    // Post: return the hex SHA-256 of VERSION and the bytes of file
+
+CLASS INVARIANT:
+
+    every entry of dir holds the complete stream of a file whose hash
+    is its name
+
+*/
+
+public class TokenFileCache {
+
+    // State
+
+    private final Path dir;   // the directory of saved streams
+
+    // Constructor
+
+    public TokenFileCache(Path dir) throws IOException
+    // Post: dir exists AND this.dir == dir
+    {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    // Interface -- public methods
+
+    public TokenSource open(Path file) throws IOException
+    // Pre:  file names a readable regular file
+    // Post: return a TokenSource for the tokens of file, saving them in
+    //       dir if they were not there already
+    {
+        Path entry = entry(file);
+        if (Files.isRegularFile(entry))
+            try {
+                return TokenStreamReader.open(entry);
+            }
+            catch (IOException e) { }  // unreadable -- saved again below
+
+        Path temp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                TokenStreamWriter.copy(new Tokenizer(file, false), out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+        return TokenStreamReader.open(entry);
+    }
+
+    public Path entry(Path file) throws IOException
+    // Post: return the name under which the stream of file is saved
+    {
+        return dir.resolve(hash(file) + ".tok");
+    }
+
+    // Helpers
+
+    private static String hash(Path file) throws IOException
+    // Post: return the hex SHA-256 of VERSION and the bytes of file
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {  // every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        digest.update((byte)TokenStreamWriter.VERSION);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long at = 0; at < size; at += Integer.MAX_VALUE)
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(size - at, Integer.MAX_VALUE)));
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest())
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+}
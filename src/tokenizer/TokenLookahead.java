@@ -0,0 +1,369 @@
+package tokenizer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+
+DESCRIPTION:
+
+This class gives a parser lookahead over the tokens of a Tokenizer: 'peek' looks any number of tokens ahead without consuming them, and 'mark' and 'rewind' let a backtracking parser go back to a token it has already passed, without the input being scanned again.  Tokens are numbered from 0 in the order they are scanned; 'next' is the number of the next token the parser will consume.
+
+The tokens scanned but still wanted -- from the oldest mark, or from next if there is none, up to the last token scanned -- are kept in a ring of parallel primitive arrays, one entry per token for its type ordinal, offset, line, column and value, as in a TokenBatch.  Token n is at index n & mask.  The ring is doubled only when every entry is wanted, which an LL(k) parser never causes once it holds k tokens, so after the first few tokens nothing is allocated while scanning.
+
+The text of a token is read from its TokenCursor as it is scanned.  The name of an identifier or keyword is interned in the Tokenizer's SymbolTable, so the ring keeps a reference to that String; the text of any other token (a number, a piece of punctuation, an error) is copied as UTF-8 into the byte array 'text', where the bytes of the tokens still wanted lie in order.  When the array fills, the bytes of the tokens no longer wanted are dropped by moving the rest to its front, and it is doubled if that frees too little.  No String is made for such a token unless getName is called for it.
+
+Once the Tokenizer returns EOF_T nothing more is scanned: every token beyond it is that EOF_T again.
+
+STATE:
+
+    private Tokenizer in;         // the source of the tokens
+    private byte[]    type;       // the ring -- ordinal of each type
+    private long[]    offset;     // offset in the input
+    private int[]     line;       // line of the first unit
+    private int[]     column;     // column of the first unit
+    private long[]    value;      // value of a number, as TokenCursor
+    private String[]  name;       // interned name, or null
+    private long[]    textAt;     // position in text of the other names
+    private int[]     textLength; // and their lengths in bytes
+    private int       mask;       // the length of the ring - 1
+    private long      first;      // the oldest token kept
+    private long      next;       // the next token to be consumed
+    private long      scanned;    // number of tokens scanned
+    private boolean   ended;      // true once EOF_T is scanned
+    private long[]    marks;      // the marks, oldest first
+    private int       depth;      // number of marks
+    private byte[]    text;       // UTF-8 text of the tokens kept
+    private long      textBase;   // position of text[0]
+    private long      textEnd;    // position just past the last byte
+
+INTERFACE:
+
+    public TokenLookahead(Tokenizer in, int capacity)
+    // Pre:  capacity is a power of 2
+    // Post: next == 0 AND the ring has capacity entries
+
+    public TokenLookahead(Tokenizer in)
+    // Post: as above with 16 entries
+
+    public Token.TokenType peek(int k)
+    // Pre:  k >= 0
+    // Post: return the type of token next+k, scanning up to it if need
+    //       be -- peek(0) is the type of the next token
+
+    public String getName(int k)
+    public long   getOffset(int k)
+    public int    getLine(int k)
+    public int    getColumn(int k)
+    // Pre:  k >= 0
+    // Post: return the text or position of token next+k
+
+    public long   getLong(int k)
+    public double getDouble(int k)
+    // Pre:  k >= 0 AND token next+k is an INT_T or FLOAT_T
+    // Post: return its value, as for TokenCursor
+
+    public void advance()
+    // Post: the next token is consumed -- next is incremented, unless the
+    //       next token is EOF_T
+
+    public Token getNextToken()
+    // Post: return the next token as a Token AND consume it
+
+    public void mark()
+    // Post: next is pushed on the marks -- the tokens from it on are
+    //       kept until the mark is rewound to or released
+
+    public void rewind()
+    // Pre:  there is a mark
+    // Post: next is the newest mark AND it is removed
+
+    public void release()
+    // Pre:  there is a mark
+    // Post: the newest mark is removed, and next is unchanged
+
+    public long position()
+    // Post: return next
+
+HELPER METHODS:
+
+    private int slot(int k)
+    // Post: return the index in the ring of token next+k -- or of the
+    //       EOF_T, if that is before it -- scanning up to it if need be
+
+    private void scan()
+    // Pre:  !ended
+    // Post: the next token of in is entry scanned of the ring AND
+    //       scanned is incremented
+
+    private void grow()
+    // Post: the ring is twice as long, and holds the same tokens
+
+    private void makeRoom(int n)
+    // Post: text has room for n more bytes past textEnd
+
+CLASS INVARIANT:
+
+    first <= next < scanned, once a token has been scanned AND
+    scanned - first <= mask + 1 AND
+    marks[0 .. depth-1] are in order AND first == marks[0] if depth > 0
+
+*/
+
+public class TokenLookahead implements TokenSource {
+
+    // State
+
+    private static final Token.TokenType[] types = Token.TokenType.values();
+
+    private final Tokenizer in;
+
+    private byte[]   type;
+    private long[]   offset;
+    private int[]    line;
+    private int[]    column;
+    private long[]   value;
+    private String[] name;
+    private long[]   textAt;
+    private int[]    textLength;
+    private int      mask;
+
+    private long     first   = 0;
+    private long     next    = 0;
+    private long     scanned = 0;
+    private boolean  ended   = false;
+
+    private long[]   marks = new long[8];
+    private int      depth = 0;
+
+    private byte[]   text = new byte[1024];
+    private long     textBase = 0;
+    private long     textEnd  = 0;
+
+    // Constructors
+
+    public TokenLookahead(Tokenizer in, int capacity)
+    // Pre:  capacity is a power of 2
+    // Post: next == 0 AND the ring has capacity entries
+    {
+        this.in     = in;
+        type        = new byte[capacity];
+        offset      = new long[capacity];
+        line        = new int[capacity];
+        column      = new int[capacity];
+        value       = new long[capacity];
+        name        = new String[capacity];
+        textAt      = new long[capacity];
+        textLength  = new int[capacity];
+        mask        = capacity - 1;
+    }
+
+    public TokenLookahead(Tokenizer in)
+    // Post: as above with 16 entries
+    {
+        this(in, 16);
+    }
+
+    // Interface -- public methods
+
+    public Token.TokenType peek(int k)
+    // Pre:  k >= 0
+    // Post: return the type of token next+k
+    {
+        int s = slot(k);  // first -- it may grow the ring
+        return types[type[s]];
+    }
+
+    public String getName(int k)
+    // Pre:  k >= 0
+    // Post: return the text of token next+k
+    {
+        int s = slot(k);
+        if (name[s] != null)
+            return name[s];
+        return new String(text, (int)(textAt[s] - textBase), textLength[s], StandardCharsets.UTF_8);
+    }
+
+    public long getOffset(int k)
+    // Pre:  k >= 0
+    // Post: return the offset of token next+k
+    {
+        int s = slot(k);
+        return offset[s];
+    }
+
+    public int getLine(int k)
+    // Pre:  k >= 0
+    // Post: return the line of token next+k
+    {
+        int s = slot(k);
+        return line[s];
+    }
+
+    public int getColumn(int k)
+    // Pre:  k >= 0
+    // Post: return the column of token next+k
+    {
+        int s = slot(k);
+        return column[s];
+    }
+
+    public long getLong(int k)
+    // Pre:  k >= 0 AND token next+k is an INT_T or FLOAT_T
+    // Post: return its value, a FLOAT_T cut to a long
+    {
+        int s = slot(k);
+        return (type[s] == Token.TokenType.FLOAT_T.ordinal()) ? (long)Double.longBitsToDouble(value[s]) : value[s];
+    }
+
+    public double getDouble(int k)
+    // Pre:  k >= 0 AND token next+k is an INT_T or FLOAT_T
+    // Post: return its value as a double
+    {
+        int s = slot(k);
+        return (type[s] == Token.TokenType.FLOAT_T.ordinal()) ? Double.longBitsToDouble(value[s]) : value[s];
+    }
+
+    public void advance()
+    // Post: the next token is consumed -- next is incremented, unless the
+    //       next token is EOF_T
+    {
+        slot(0);
+        if (!(ended && next == scanned - 1))
+            next++;
+    }
+
+    public Token getNextToken()
+    // Post: return the next token as a Token AND consume it
+    {
+        int s = slot(0);
+        Token t = new Token(types[type[s]], getName(0), offset[s], line[s], column[s], value[s]);
+        advance();
+        return t;
+    }
+
+    public void mark()
+    // Post: next is pushed on the marks
+    {
+        if (depth == marks.length)
+            marks = java.util.Arrays.copyOf(marks, 2 * depth);
+        marks[depth++] = next;
+    }
+
+    public void rewind()
+    // Pre:  there is a mark
+    // Post: next is the newest mark AND it is removed
+    {
+        if (depth == 0)
+            throw new IllegalStateException("rewind without a mark");
+        next = marks[--depth];
+    }
+
+    public void release()
+    // Pre:  there is a mark
+    // Post: the newest mark is removed, and next is unchanged
+    {
+        if (depth == 0)
+            throw new IllegalStateException("release without a mark");
+        depth--;
+    }
+
+    public long position()
+    // Post: return next
+    {
+        return next;
+    }
+
+    // Helpers
+
+    private int slot(int k)
+    // Post: return the index in the ring of token next+k -- or of the
+    //       EOF_T, if that is before it -- scanning up to it if need be
+    {
+        long n = next + k;
+        while (n >= scanned && !ended)
+            scan();
+        if (n >= scanned)  // beyond the end
+            n = scanned - 1;
+        return (int)n & mask;
+    }
+
+    private void scan()
+    // Pre:  !ended
+    // Post: the next token of in is entry scanned of the ring AND
+    //       scanned is incremented
+    {
+        first = (depth == 0) ? next : marks[0];
+        if (scanned - first == mask + 1)
+            grow();
+
+        TokenCursor t = in.nextToken();
+        int s = (int)scanned & mask;
+        type[s]   = (byte)t.getType().ordinal();
+        offset[s] = t.getOffset();
+        line[s]   = t.getLine();
+        column[s] = t.getColumn();
+        value[s]  = t.value();
+        if (t.getSymbol() != SymbolTable.NO_SYMBOL) {
+            name[s] = t.getName();  // interned -- no copy
+            textAt[s] = textEnd;
+            textLength[s] = 0;
+        }
+        else {
+            name[s] = null;
+            makeRoom(3 * t.units());
+            textAt[s] = textEnd;
+            int end = t.encode(text, (int)(textEnd - textBase));
+            textLength[s] = end - (int)(textEnd - textBase);
+            textEnd += textLength[s];
+        }
+        scanned++;
+        ended = t.getType() == Token.TokenType.EOF_T;
+    }
+
+    private void grow()
+    // Post: the ring is twice as long, and holds the same tokens
+    {
+        int capacity = 2 * (mask + 1);
+        byte[]   type2   = new byte[capacity];
+        long[]   offset2 = new long[capacity];
+        int[]    line2   = new int[capacity];
+        int[]    column2 = new int[capacity];
+        long[]   value2  = new long[capacity];
+        String[] name2   = new String[capacity];
+        long[]   at2     = new long[capacity];
+        int[]    length2 = new int[capacity];
+        for (long n = first; n != scanned; n++) {
+            int s = (int)n & mask, d = (int)n & (capacity - 1);
+            type2[d]   = type[s];
+            offset2[d] = offset[s];
+            line2[d]   = line[s];
+            column2[d] = column[s];
+            value2[d]  = value[s];
+            name2[d]   = name[s];
+            at2[d]     = textAt[s];
+            length2[d] = textLength[s];
+        }
+        type = type2;
+        offset = offset2;
+        line = line2;
+        column = column2;
+        value = value2;
+        name = name2;
+        textAt = at2;
+        textLength = length2;
+        mask = capacity - 1;
+    }
+
+    private void makeRoom(int n)
+    // Post: text has room for n more bytes past textEnd
+    {
+        if (text.length - (textEnd - textBase) >= n)
+            return;
+        long keep = (first < scanned) ? textAt[(int)first & mask] : textEnd;
+        int live = (int)(textEnd - keep);
+        byte[] to = (live + n > text.length / 2) ? new byte[Math.max(2 * text.length, 2 * (live + n))] : text;
+        System.arraycopy(text, (int)(keep - textBase), to, 0, live);
+        text = to;
+        textBase = keep;
+    }
+}
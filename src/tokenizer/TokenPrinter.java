@@ -0,0 +1,697 @@
+package tokenizer;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+
+DESCRIPTION:
+
+This class writes tokens, one record per token, along with any other text appended to it, in UTF-8 to a WritableByteChannel.  It exists because printing each token with System.out.println, through Token.toString and a synchronized PrintStream which flushes at every line, costs more than scanning the token did.  Every record holds the type, text, offset, line and column of its token, and -- once setSource has named the file the tokens come from -- the file first; the 'format' of the records is one of
+
+    LISTING   the lines printed by PDef, for people to read:
+                  type(  text )  line l, column c
+              and type(  text ) alone for EOF_T; the offset and file are
+              left out
+    JSONL     JSON Lines -- one object per line:
+                  {"type":"IDENT_T","text":"abc","offset":0,"line":1,"column":1}
+    CSV       a header line, type,text,offset,line,column, and then one
+              line per token, with a text holding , " or an end of line
+              quoted as RFC 4180 says
+    TSV       as CSV with tabs between the fields, and tab, end of line
+              and backslash written \t \n \r and \\ within a field
+    BINARY    the bytes 'P' 'D' 'T' 'R' and the byte RECORD_VERSION, and
+              then for each token a record of big endian numbers:
+                  length    int    the number of bytes which follow
+                  type      byte   the ordinal of the token type
+                  offset    long
+                  line      int
+                  column    int
+                  text      int    its length in bytes, and then its
+                                   UTF-8 bytes
+                  file      the UTF-8 bytes of the file, to the end of
+                            the record (none if there is no source)
+
+so that a program downstream can read the tokens with a JSON, CSV or DataInput reader rather than parsing the listing again.  In every format but BINARY the records end with an end of line.
+
+Everything is formatted straight into the byte array 'buf': the type names are kept as bytes, the characters of a token are copied out of the Tokenizer's buffer through TokenCursor.encode (the bytes of a mapped file as they are) into the reusable array 'text' and escaped from there for the format, the file is escaped once when it is set, and the numbers are written digit by digit, so printing a token allocates nothing.  When buf is full it is written to the channel in one call.  Appended text (the echoed input, debug messages and the other lines of PDef) is encoded into the same array, so it keeps its place among the tokens -- in any format, so a program which writes records for another program to read appends nothing else.
+
+A printer made with 'async' set has a writer thread of its own, so that scanning and output overlap.  The printer then fills the buffers of a ring of 'ringSize' slots in turn, and hands each full one to the writer through the ring: the printer is its only producer and the writer its only consumer, so the two share nothing but the counters 'tail' (slots handed over) and 'head' (slots written), each written by one thread only.  The printer waits only when every slot is waiting to be written, and the writer only when none is; each parks, and is unparked by the other.  A failure of the writer is kept in 'failure' and thrown to the printer at its next hand over.
+
+A printer is used by one thread at a time.  Text written is only sure to have reached the channel once 'flush' or 'close' returns.
+
+STATE:
+
+    private WritableByteChannel out;   // where the bytes go
+    private Format   format;    // the form of the records
+    private byte[]   buf;       // the buffer being filled
+    private int      pos;       // number of bytes in buf
+    private char     high;      // a high surrogate whose low surrogate
+                                // has not been appended yet, or 0
+    private boolean  closed;    // true once close is called
+    private byte[]   text;      // the UTF-8 bytes of the token being
+    private int      textLength;  // printed, and their number
+    private byte[]   source;    // the file field, escaped for format, or
+                                // null if there is none
+    private boolean  started;   // true once the header of a CSV or TSV
+                                // has been written
+
+and, when there is a writer thread,
+
+    private byte[][] slots;     // the ring of buffers -- buf is
+                                // slots[tail % ringSize]
+    private int[]    filled;    // number of bytes in each slot handed over
+    private volatile long tail; // number of slots handed to the writer
+    private volatile long head; // number of slots written by it
+    private volatile boolean closing;  // true once the last slot is
+                                       // handed over
+    private volatile IOException failure;  // what stopped the writer,
+                                           // or null
+    private Thread   writer;    // the writer thread
+    private volatile Thread waiting;   // the printer, while it waits for
+                                       // the writer
+
+INTERFACE:
+
+    public enum Format { LISTING, JSONL, CSV, TSV, BINARY }
+
+    public static final int RECORD_VERSION;
+
+    public TokenPrinter(WritableByteChannel out, Format format, int size,
+                        boolean async)
+    // Pre:  size >= 64
+    // Post: the printer writes tokens to out in format, in blocks of up
+    //       to size bytes -- from a writer thread of its own if async
+
+    public TokenPrinter(WritableByteChannel out, int size, boolean async)
+    // Post: as above in LISTING format
+
+    public TokenPrinter(WritableByteChannel out)
+    // Post: as above with blocks of 64 KB and no writer thread
+
+    public void print(TokenCursor t)
+    // Post: the record of the token viewed by t is appended
+
+    public void print(Token t)
+    // Post: the record of t is appended
+
+    public void setSource(String name)
+    // Post: the records which follow begin with a file field holding
+    //       name -- or have none, if name is null
+
+    public TokenPrinter append(char c)
+    public TokenPrinter append(CharSequence s)
+    public TokenPrinter append(CharSequence s, int start, int end)
+    // Post: the characters are appended AND return this
+
+    public void flush() throws IOException
+    // Post: everything appended has been written to out
+
+    public void close() throws IOException
+    // Post: as for flush AND the writer thread, if any, has stopped AND
+    //       out is closed
+
+The methods which append throw UncheckedIOException if out cannot be written, so that a printer can be used where an IOException cannot be thrown (the Consumer of a BatchTokenizer, say).
+
+HELPER METHODS:
+
+    private void record(Token.TokenType type, long offset, int line,
+                        int column)
+    // Pre:  text holds the textLength bytes of the token
+    // Post: the record of the token is appended in format
+
+    private void end(Token.TokenType type, int line, int column)
+    // Pre:  buf has room for 40 bytes
+    // Post: the rest of the line for a token is appended
+
+    private void room(int n)
+    // Post: buf has room for n more bytes
+
+    private void put(byte[] bytes, int n)
+    // Pre:  buf has room for n bytes
+    // Post: bytes[0 .. n-1] are appended
+
+    private void putLong(long v)
+    // Pre:  buf has room for 20 bytes AND v > Long.MIN_VALUE
+    // Post: the decimal digits of v are appended
+
+    private void putRaw(long v, int n)
+    // Pre:  buf has room for n bytes
+    // Post: the low n bytes of v are appended, high byte first
+
+    private static int json(byte[] src, int n, byte[] dst, int at)
+    private static int csv(byte[] src, int n, byte[] dst, int at)
+    private static int tsv(byte[] src, int n, byte[] dst, int at)
+    // Pre:  dst has room for 6 * n (json), 2 * n + 2 (csv) or 2 * n
+    //       (tsv) bytes from at
+    // Post: src[0 .. n-1] are in dst from at, escaped as a field of the
+    //       format, AND return the index in dst just past them
+
+    private void handOver() throws IOException
+    // Post: the bytes of buf are written, or handed to the writer thread,
+    //       AND buf is empty
+
+    private void awaitWriter(long written) throws IOException
+    // Post: head >= written -- Except throw the failure of the writer
+
+    private void drain()
+    // Post: the slots handed over are written, in order, until closing
+
+    private static byte[] bytes(String s)
+    // Post: return the bytes of s in ASCII
+
+CLASS INVARIANT:
+
+    0 <= pos <= buf.length AND, with a writer thread,
+    0 <= tail - head < ringSize
+
+*/
+
+public class TokenPrinter implements Appendable, Flushable, Closeable {
+
+    // State
+
+    public enum Format { LISTING, JSONL, CSV, TSV, BINARY };
+
+    public static final int RECORD_VERSION = 1;
+
+    static final byte[] RECORD_MAGIC = { 'P', 'D', 'T', 'R' };
+
+    private static final int defaultSize = 1 << 16;
+    private static final int ringSize = 4;
+
+    private static final byte[][] typeNames;  // "type(  " by ordinal
+    private static final byte[][] types;      // "type" by ordinal
+    private static final byte[] CLOSE  = bytes(" )");
+    private static final byte[] LINE   = bytes("  line ");
+    private static final byte[] COLUMN = bytes(", column ");
+    private static final byte[] HEADER = bytes("type,text,offset,line,column");
+    private static final byte[] J_FILE   = bytes("{\"file\":");
+    private static final byte[] J_TYPE   = bytes("\"type\":\"");
+    private static final byte[] J_TEXT   = bytes("\",\"text\":\"");
+    private static final byte[] J_OFFSET = bytes("\",\"offset\":");
+    private static final byte[] J_LINE   = bytes(",\"line\":");
+    private static final byte[] J_COLUMN = bytes(",\"column\":");
+    private static final byte[] HEX = bytes("0123456789abcdef");
+
+    static {
+        Token.TokenType[] values = Token.TokenType.values();
+        typeNames = new byte[values.length][];
+        types = new byte[values.length][];
+        for (Token.TokenType t : values) {
+            typeNames[t.ordinal()] = bytes(t + "(  ");
+            types[t.ordinal()] = bytes(t.toString());
+        }
+    }
+
+    private final WritableByteChannel out;
+    private final Format format;
+    private byte[]  buf;
+    private int     pos    = 0;
+    private char    high   = 0;
+    private boolean closed = false;
+    private byte[]  text = new byte[256];
+    private int     textLength = 0;
+    private byte[]  source = null;
+    private boolean started = false;
+
+    private final byte[][] slots;      // null if there is no writer
+    private final int[]    filled;
+    private volatile long  tail = 0;
+    private volatile long  head = 0;
+    private volatile boolean closing = false;
+    private volatile IOException failure = null;
+    private final Thread   writer;
+    private volatile Thread waiting = null;
+
+    // Constructors
+
+    public TokenPrinter(WritableByteChannel out, Format format, int size, boolean async)
+    // Pre:  size >= 64
+    // Post: the printer writes tokens to out in format, in blocks of up
+    //       to size bytes -- from a writer thread of its own if async
+    {
+        this.out = out;
+        this.format = format;
+        if (!async) {
+            buf    = new byte[size];
+            slots  = null;
+            filled = null;
+            writer = null;
+        }
+        else {
+            slots  = new byte[ringSize][];
+            for (int i = 0; i != ringSize; i++)
+                slots[i] = new byte[size];
+            filled = new int[ringSize];
+            buf    = slots[0];
+            writer = new Thread(this::drain, "TokenPrinter writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        if (format == Format.BINARY) {
+            put(RECORD_MAGIC, RECORD_MAGIC.length);
+            buf[pos++] = RECORD_VERSION;
+        }
+    }
+
+    public TokenPrinter(WritableByteChannel out, int size, boolean async)
+    // Post: as above in LISTING format
+    {
+        this(out, Format.LISTING, size, async);
+    }
+
+    public TokenPrinter(WritableByteChannel out)
+    // Post: as above with blocks of 64 KB and no writer thread
+    {
+        this(out, defaultSize, false);
+    }
+
+    // Interface -- public methods
+
+    public void print(TokenCursor t)
+    // Post: the record of the token viewed by t is appended
+    {
+        if (text.length < 3 * t.units())
+            text = new byte[2 * 3 * t.units()];
+        textLength = t.encode(text, 0);
+        record(t.getType(), t.getOffset(), t.getLine(), t.getColumn());
+    }
+
+    public void print(Token t)
+    // Post: the record of t is appended
+    {
+        String name = String.valueOf(t.getName());
+        if (text.length < 3 * name.length())
+            text = new byte[2 * 3 * name.length()];
+        textLength = ScanBuffer.encodeChars(name, text, 0);
+        record(t.getType(), t.getOffset(), t.getLine(), t.getColumn());
+    }
+
+    public void setSource(String name)
+    // Post: the records which follow begin with a file field holding
+    //       name -- or have none, if name is null
+    {
+        if (name == null || format == Format.LISTING) {
+            source = null;
+            return;
+        }
+        byte[] raw = new byte[3 * name.length()];
+        int n = ScanBuffer.encodeChars(name, raw, 0);
+        byte[] field = new byte[6 * n + 2];
+        int end;
+        switch (format) {
+        case JSONL:
+            field[0] = '"';
+            end = json(raw, n, field, 1);
+            field[end++] = '"';
+            break;
+        case CSV:
+            end = csv(raw, n, field, 0);
+            break;
+        case TSV:
+            end = tsv(raw, n, field, 0);
+            break;
+        default:
+            end = n;
+            System.arraycopy(raw, 0, field, 0, n);
+            break;
+        }
+        source = Arrays.copyOf(field, end);
+    }
+
+    public TokenPrinter append(char c)
+    // Post: c is appended AND return this
+    {
+        room(4);
+        if (high != 0) {
+            char h = high;
+            high = 0;
+            if (Character.isLowSurrogate(c)) {
+                pos = ScanBuffer.encodeChar(Character.toCodePoint(h, c), buf, pos);
+                return this;
+            }
+            buf[pos++] = '?';
+        }
+        if (Character.isHighSurrogate(c))
+            high = c;
+        else
+            pos = ScanBuffer.encodeChar(c, buf, pos);
+        return this;
+    }
+
+    public TokenPrinter append(CharSequence s)
+    // Post: the characters of s ("null" if it is null) are appended AND
+    //       return this
+    {
+        if (s == null)
+            s = "null";
+        return append(s, 0, s.length());
+    }
+
+    public TokenPrinter append(CharSequence s, int start, int end)
+    // Post: the characters start .. end-1 of s are appended AND return
+    //       this
+    {
+        if (s == null)
+            s = "null";
+        for (int i = start; i != end; i++)
+            append(s.charAt(i));
+        return this;
+    }
+
+    public void flush() throws IOException
+    // Post: everything appended has been written to out
+    {
+        handOver();
+        if (writer != null)
+            awaitWriter(tail);
+    }
+
+    public void close() throws IOException
+    // Post: as for flush AND the writer thread, if any, has stopped AND
+    //       out is closed
+    {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            flush();
+        }
+        finally {
+            if (writer != null) {
+                closing = true;
+                LockSupport.unpark(writer);
+                try {
+                    writer.join();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            out.close();
+        }
+    }
+
+    // Helpers
+
+    private void record(Token.TokenType type, long offset, int line, int column)
+    // Pre:  text holds the textLength bytes of the token
+    // Post: the record of the token is appended in format
+    {
+        int t = type.ordinal();
+        int sourceLength = (source == null) ? 0 : source.length;
+        switch (format) {
+        case LISTING:
+            room(textLength + 64);
+            put(typeNames[t], typeNames[t].length);
+            put(text, textLength);
+            end(type, line, column);
+            break;
+
+        case JSONL:
+            room(6 * textLength + sourceLength + 128);
+            if (source != null) {
+                put(J_FILE, J_FILE.length);
+                put(source, sourceLength);
+                buf[pos++] = ',';
+            }
+            else
+                buf[pos++] = '{';
+            put(J_TYPE, J_TYPE.length);
+            put(types[t], types[t].length);
+            put(J_TEXT, J_TEXT.length);
+            pos = json(text, textLength, buf, pos);
+            put(J_OFFSET, J_OFFSET.length);
+            putLong(offset);
+            put(J_LINE, J_LINE.length);
+            putLong(line);
+            put(J_COLUMN, J_COLUMN.length);
+            putLong(column);
+            buf[pos++] = '}';
+            buf[pos++] = '\n';
+            break;
+
+        case CSV:
+        case TSV:
+            byte sep = (byte)((format == Format.CSV) ? ',' : '\t');
+            room(2 * textLength + sourceLength + HEADER.length + 80);
+            if (!started) {  // the header, before the first record
+                started = true;
+                if (source != null) {
+                    put(bytes("file"), 4);
+                    buf[pos++] = sep;
+                }
+                for (byte b : HEADER)
+                    buf[pos++] = (b == ',') ? sep : b;
+                buf[pos++] = '\n';
+            }
+            if (source != null) {
+                put(source, sourceLength);
+                buf[pos++] = sep;
+            }
+            put(types[t], types[t].length);
+            buf[pos++] = sep;
+            pos = (format == Format.CSV) ? csv(text, textLength, buf, pos) : tsv(text, textLength, buf, pos);
+            buf[pos++] = sep;
+            putLong(offset);
+            buf[pos++] = sep;
+            putLong(line);
+            buf[pos++] = sep;
+            putLong(column);
+            buf[pos++] = '\n';
+            break;
+
+        case BINARY:
+            room(25 + textLength + sourceLength);
+            putRaw(21 + textLength + sourceLength, 4);
+            buf[pos++] = (byte)t;
+            putRaw(offset, 8);
+            putRaw(line, 4);
+            putRaw(column, 4);
+            putRaw(textLength, 4);
+            put(text, textLength);
+            if (source != null)
+                put(source, sourceLength);
+            break;
+        }
+    }
+
+    private void end(Token.TokenType type, int line, int column)
+    // Pre:  buf has room for 40 bytes
+    // Post: the rest of the line for a token is appended
+    {
+        put(CLOSE, CLOSE.length);
+        if (type != Token.TokenType.EOF_T) {
+            put(LINE, LINE.length);
+            putLong(line);
+            put(COLUMN, COLUMN.length);
+            putLong(column);
+        }
+        buf[pos++] = '\n';
+    }
+
+    private void room(int n)
+    // Post: buf has room for n more bytes -- Except throw
+    //       UncheckedIOException if out cannot be written
+    {
+        if (buf.length - pos >= n)
+            return;
+        try {
+            handOver();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (buf.length < n) {  // a token larger than a whole block
+            buf = new byte[n];
+            if (slots != null)
+                slots[(int)(tail % ringSize)] = buf;
+        }
+    }
+
+    private void put(byte[] bytes, int n)
+    // Pre:  buf has room for n bytes
+    // Post: bytes[0 .. n-1] are appended
+    {
+        System.arraycopy(bytes, 0, buf, pos, n);
+        pos += n;
+    }
+
+    private void putLong(long v)
+    // Pre:  buf has room for 20 bytes AND v > Long.MIN_VALUE
+    // Post: the decimal digits of v are appended
+    {
+        if (v < 0) {  // the offset of a token which has none
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long p = 10; p <= v; p *= 10)
+            digits++;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (byte)('0' + v % 10);
+            v /= 10;
+        }
+        pos += digits;
+    }
+
+    private void putRaw(long v, int n)
+    // Pre:  buf has room for n bytes
+    // Post: the low n bytes of v are appended, high byte first
+    {
+        for (int shift = 8 * (n - 1); shift >= 0; shift -= 8)
+            buf[pos++] = (byte)(v >>> shift);
+    }
+
+    private static int json(byte[] src, int n, byte[] dst, int at)
+    // Pre:  dst has room for 6 * n bytes from at
+    // Post: src[0 .. n-1] are in dst from at, escaped for a JSON string,
+    //       AND return the index in dst just past them
+    {
+        for (int i = 0; i != n; i++) {
+            byte b = src[i];
+            if (b == '"' || b == '\\') {
+                dst[at++] = '\\';
+                dst[at++] = b;
+            }
+            else if (b >= 0 && b < 0x20) {
+                dst[at++] = '\\';
+                switch (b) {
+                case '\n': dst[at++] = 'n'; break;
+                case '\t': dst[at++] = 't'; break;
+                case '\r': dst[at++] = 'r'; break;
+                default:
+                    dst[at++] = 'u';
+                    dst[at++] = '0';
+                    dst[at++] = '0';
+                    dst[at++] = HEX[b >> 4];
+                    dst[at++] = HEX[b & 0xF];
+                }
+            }
+            else
+                dst[at++] = b;  // including the bytes of non-ASCII UTF-8
+        }
+        return at;
+    }
+
+    private static int csv(byte[] src, int n, byte[] dst, int at)
+    // Pre:  dst has room for 2 * n + 2 bytes from at
+    // Post: src[0 .. n-1] are in dst from at as a CSV field -- quoted,
+    //       with each quote doubled, if it holds , " or an end of line
+    //       -- AND return the index in dst just past them
+    {
+        boolean quote = false;
+        for (int i = 0; i != n && !quote; i++)
+            quote = src[i] == ',' || src[i] == '"' || src[i] == '\n' || src[i] == '\r';
+        if (!quote) {
+            System.arraycopy(src, 0, dst, at, n);
+            return at + n;
+        }
+        dst[at++] = '"';
+        for (int i = 0; i != n; i++) {
+            if (src[i] == '"')
+                dst[at++] = '"';
+            dst[at++] = src[i];
+        }
+        dst[at++] = '"';
+        return at;
+    }
+
+    private static int tsv(byte[] src, int n, byte[] dst, int at)
+    // Pre:  dst has room for 2 * n bytes from at
+    // Post: src[0 .. n-1] are in dst from at as a TSV field -- with tab,
+    //       end of line and backslash written \t \n \r and \\ -- AND
+    //       return the index in dst just past them
+    {
+        for (int i = 0; i != n; i++) {
+            byte b = src[i];
+            switch (b) {
+            case '\t': dst[at++] = '\\'; dst[at++] = 't'; break;
+            case '\n': dst[at++] = '\\'; dst[at++] = 'n'; break;
+            case '\r': dst[at++] = '\\'; dst[at++] = 'r'; break;
+            case '\\': dst[at++] = '\\'; dst[at++] = '\\'; break;
+            default:   dst[at++] = b;
+            }
+        }
+        return at;
+    }
+
+    private void handOver() throws IOException
+    // Post: the bytes of buf are written, or handed to the writer thread,
+    //       AND buf is empty
+    {
+        if (pos == 0)
+            return;
+        if (writer == null) {
+            ByteBuffer b = ByteBuffer.wrap(buf, 0, pos);
+            while (b.hasRemaining())
+                out.write(b);
+            pos = 0;
+            return;
+        }
+
+        long t = tail;
+        filled[(int)(t % ringSize)] = pos;
+        tail = t + 1;  // publishes the slot and its count
+        LockSupport.unpark(writer);
+        awaitWriter(t + 2 - ringSize);  // the next slot is free
+        buf = slots[(int)((t + 1) % ringSize)];
+        pos = 0;
+    }
+
+    private void awaitWriter(long written) throws IOException
+    // Post: head >= written -- Except throw the failure of the writer
+    {
+        while (head < written) {
+            if (failure != null)
+                throw failure;
+            waiting = Thread.currentThread();
+            if (head < written && failure == null)
+                LockSupport.parkNanos(this, 1000000);
+            waiting = null;
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void drain()
+    // Post: the slots handed over are written, in order, until closing
+    {
+        try {
+            while (true) {
+                boolean last = closing;  // read before tail, so tail is final
+                long h = head;
+                if (h == tail) {
+                    if (last)
+                        return;
+                    LockSupport.parkNanos(this, 1000000);
+                    continue;
+                }
+                int s = (int)(h % ringSize);
+                ByteBuffer b = ByteBuffer.wrap(slots[s], 0, filled[s]);
+                while (b.hasRemaining())
+                    out.write(b);
+                head = h + 1;
+                LockSupport.unpark(waiting);
+            }
+        }
+        catch (IOException e) {
+            failure = e;
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    private static byte[] bytes(String s)
+    // Post: return the bytes of s in ASCII
+    {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
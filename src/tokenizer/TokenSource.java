@@ -0,0 +1,20 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This interface is the iteration protocol shared by everything which hands out the tokens of one input in order: a Tokenizer scanning the input itself, and a TokenStreamReader replaying tokens saved by an earlier scan.  A consumer written against TokenSource does not need to know which one it has.
+
+INTERFACE:
+
+    Token getNextToken()
+    // Post: return the next token of the input -- the last token is
+    //       EOF_T
+
+*/
+
+public interface TokenSource {
+
+    Token getNextToken();
+}
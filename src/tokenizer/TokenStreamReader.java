@@ -0,0 +1,240 @@
+package tokenizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+
+DESCRIPTION:
+
+This class replays a token stream written by TokenStreamWriter.  The stream is read where it lies -- usually a file mapped into memory -- one record at a time as getNextToken is called, so opening even a large stream costs nothing until its tokens are used, and nothing is copied but the names, each of which is decoded once into the name table when it first appears.
+
+A single mapping cannot exceed 2 GB, so a file is mapped in windows of at most 'window' bytes, as ByteScanBuffer maps its input, and the position 'pos' is an offset in the whole stream.  When a record runs past the end of a window the next window is mapped, starting at the byte the record needs; the file is closed once its last window is mapped.  A stream read only in part keeps its file open until the reader is collected.
+
+Once the EOF_T record has been read, getNextToken returns EOF_T again on every call, as a Tokenizer does at the end of its input.
+
+STATE:
+
+    private FileChannel       channel; // the mapped stream, or null if
+                                       // it is a single ByteBuffer
+    private long              size;    // length of the stream in bytes
+    private ByteBuffer        in;      // the current window of the stream
+    private long              base;    // offset in the stream of in[0]
+    private long              pos;     // offset in the stream of the next
+                                       // byte
+    private ArrayList<String> names;   // the names read so far
+    private long              end;     // offset + length of the token
+                                       // before
+    private int               line;    // line of the token before
+    private int               length;  // length of the last token
+    private Token             eof;     // the EOF_T token, once read
+
+INTERFACE:
+
+    public TokenStreamReader(ByteBuffer in) throws IOException
+    // Post: the header of in has been checked AND the next token is the
+    //       first of the stream -- Except throw IOException if in does
+    //       not start with the header of this VERSION
+
+    public static TokenStreamReader open(Path path) throws IOException
+    // Pre:  path names a readable regular file
+    // Post: return a reader over the first window of the file mapped
+    //       into memory
+
+    public Token getNextToken()
+    // Post: return the next token of the stream -- Except throw
+    //       IllegalStateException if the stream is damaged, or
+    //       UncheckedIOException if its next window cannot be mapped
+
+    public int getLength()
+    // Post: return the length in input units of the token last returned
+
+HELPER METHODS:
+
+    private long varint()
+    // Post: return the varint at pos and advance pos past it
+
+    private int next()
+    // Post: return the byte at pos and advance pos past it -- Except
+    //       throw IndexOutOfBoundsException at the end of the stream
+
+    private void remap()
+    // Post: the window starting at pos is mapped, if the stream goes on
+    //       past in -- Except throw UncheckedIOException if it cannot
+    //       be mapped
+
+    private void close()
+    // Post: channel is closed -- the last window stays mapped
+
+CLASS INVARIANT:
+
+    base <= pos <= base + in.limit() <= size AND
+    (eof == null OR pos is past the EOF_T record)
+
+*/
+
+public class TokenStreamReader implements TokenSource {
+
+    // State
+
+    private static final Token.TokenType[] types = Token.TokenType.values();
+
+    private static final int window = 1 << 30;   // largest mapping
+
+    private FileChannel       channel = null;
+    private long              size;
+    private ByteBuffer        in;
+    private long              base   = 0;
+    private long              pos;
+    private final ArrayList<String> names = new ArrayList<String>();
+    private long              end    = 0;
+    private int               line   = 1;
+    private int               length = 0;
+    private Token             eof    = null;
+
+    // Constructors
+
+    public TokenStreamReader(ByteBuffer in) throws IOException
+    // Post: the header of in has been checked AND the next token is the
+    //       first of the stream -- Except throw IOException if in does
+    //       not start with the header of this VERSION
+    {
+        this.in = in.slice();
+        byte[] magic = TokenStreamWriter.MAGIC;
+        boolean ok = this.in.limit() > magic.length;
+        for (int i = 0; ok && i != magic.length; i++)
+            ok = this.in.get(i) == magic[i];
+        if (!ok || this.in.get(magic.length) != TokenStreamWriter.VERSION)
+            throw new IOException("not a token stream of version " + TokenStreamWriter.VERSION);
+        this.size = this.in.limit();
+        this.pos  = magic.length + 1;
+    }
+
+    private TokenStreamReader(FileChannel channel, long size) throws IOException
+    {
+        this(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, window)));
+        this.channel = channel;
+        this.size    = size;
+        if (size <= window)  // mapped in one piece
+            close();
+    }
+
+    public static TokenStreamReader open(Path path) throws IOException
+    // Pre:  path names a readable regular file
+    // Post: return a reader over the first window of the file mapped
+    //       into memory
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new TokenStreamReader(channel, channel.size());
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Interface -- public methods
+
+    public Token getNextToken()
+    // Post: return the next token of the stream -- Except throw
+    //       IllegalStateException if the stream is damaged, or
+    //       UncheckedIOException if its next window cannot be mapped
+    {
+        if (eof != null)
+            return eof;
+
+        try {
+            Token.TokenType type = types[(int)varint()];
+            long offset = end + varint();
+            length = (int)varint();
+            line += (int)varint();
+            int column = (int)varint();
+
+            int ref = (int)varint();
+            String name;
+            if (ref != 0)
+                name = names.get(ref - 1);
+            else {
+                int n = (int)varint();
+                byte[] bytes = new byte[n];
+                for (int i = 0; i != n; i++)
+                    bytes[i] = (byte)next();
+                name = new String(bytes, StandardCharsets.UTF_8);
+                names.add(name);
+            }
+            end = offset + length;
+
+            Token t = new Token(type, name, offset, line, column);
+            if (type == Token.TokenType.EOF_T)
+                eof = t;
+            return t;
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new IllegalStateException("damaged token stream at byte " + pos, e);
+        }
+    }
+
+    public int getLength()
+    // Post: return the length in input units of the token last returned
+    {
+        return length;
+    }
+
+    // Helpers
+
+    private long varint()
+    // Post: return the varint at pos and advance pos past it
+    {
+        long n = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = next();
+            n |= (long)(b & 0x7F) << shift;
+            if (b >= 0)
+                return n;
+        }
+    }
+
+    private int next()
+    // Post: return the byte at pos and advance pos past it -- Except
+    //       throw IndexOutOfBoundsException at the end of the stream
+    {
+        if (pos - base == in.limit())
+            remap();
+        return in.get((int)(pos++ - base));
+    }
+
+    private void remap()
+    // Post: the window starting at pos is mapped, if the stream goes on
+    //       past in -- Except throw UncheckedIOException if it cannot
+    //       be mapped
+    {
+        if (channel == null || base + in.limit() == size)
+            return;
+        long len = Math.min(size - pos, window);
+        try {
+            in   = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            base = pos;
+            if (base + len == size)  // the last window
+                close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("cannot map token stream at byte " + pos, e);
+        }
+    }
+
+    private void close()
+    // Post: channel is closed -- the last window stays mapped
+    {
+        try {
+            channel.close();
+        }
+        catch (IOException e) { }  // the windows are mapped already
+    }
+}
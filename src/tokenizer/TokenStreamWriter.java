@@ -0,0 +1,166 @@
+package tokenizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+
+DESCRIPTION:
+
+This class writes a token stream in a compact binary form, so that the tokens of an input can be saved once and replayed by a TokenStreamReader without scanning the input again.  The stream is a header followed by one record per token, ending with the record of the EOF_T token:
+
+    header      the bytes 'P' 'D' 'T' 'K' and the byte VERSION
+    record      type      the ordinal of the token type
+                gap       offset - (offset + length of the token before)
+                length    the length of the token in input units
+                lines     line - line of the token before
+                column    the column of the token
+                name      0 followed by a new name (its length in bytes
+                          and its UTF-8 bytes), or 1 + the index of a
+                          name already in the stream
+
+Every number is an unsigned varint: seven bits to a byte, low bits first, with the high bit set on every byte but the last.  Since the positions are written as differences from the token before, and the names (identifiers, keywords and punctuation alike) are interned in a table built as the stream is read, most records take five or six bytes.
+
+VERSION is part of the key under which TokenFileCache saves a stream, so it must change whenever the tokens produced for an input change -- when ScanTable or the token types change, for instance -- as well as when the format does.
+
+STATE:
+
+    private OutputStream            out;     // where the stream goes
+    private HashMap<String,Integer> names;   // index of each name written
+    private long                    end;     // offset + length of the
+                                             // token before
+    private int                     line;    // line of the token before
+
+INTERFACE:
+
+    public static final int VERSION;
+
+    public TokenStreamWriter(OutputStream out) throws IOException
+    // Post: the header has been written to out
+
+    public void write(Token.TokenType type, String name, long offset,
+                      int length, int line, int column) throws IOException
+    // Pre:  offset >= end AND line >= this.line
+    // Post: the record of the token has been written -- Except throw
+    //       IllegalArgumentException if the token is before the last one
+
+    public void write(TokenCursor t) throws IOException
+    // Post: the record of the token viewed by t has been written
+
+    public static long copy(Tokenizer in, OutputStream out) throws IOException
+    // Post: the tokens of in, up to and including EOF_T, have been
+    //       written to out as a stream AND return the number of tokens
+
+    public void close() throws IOException
+    // Post: out has been closed
+
+HELPER METHODS:
+
+    private void varint(long n) throws IOException
+    // Pre:  n >= 0
+    // Post: n has been written as a varint
+
+CLASS INVARIANT:
+
+    names holds each name written, by its index in the stream
+
+*/
+
+public class TokenStreamWriter implements Closeable {
+
+    // State
+
+    public static final int VERSION = 4;
+
+    static final byte[] MAGIC = { 'P', 'D', 'T', 'K' };
+
+    private final OutputStream out;
+    private final HashMap<String,Integer> names = new HashMap<String,Integer>();
+    private long end  = 0;   // offset + length of the token before
+    private int  line = 1;   // line of the token before
+
+    // Constructor
+
+    public TokenStreamWriter(OutputStream out) throws IOException
+    // Post: the header has been written to out
+    {
+        this.out = out;
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    // Interface -- public methods
+
+    public void write(Token.TokenType type, String name, long offset, int length, int line, int column)
+        throws IOException
+    // Pre:  offset >= end AND line >= this.line
+    // Post: the record of the token has been written -- Except throw
+    //       IllegalArgumentException if the token is before the last one
+    {
+        if (offset < end || line < this.line)
+            throw new IllegalArgumentException("token at offset " + offset + " is out of order");
+
+        varint(type.ordinal());
+        varint(offset - end);
+        varint(length);
+        varint(line - this.line);
+        varint(column);
+
+        Integer index = names.get(name);
+        if (index != null)
+            varint(index + 1);
+        else {
+            names.put(name, names.size());
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            varint(0);
+            varint(bytes.length);
+            out.write(bytes);
+        }
+
+        end = offset + length;
+        this.line = line;
+    }
+
+    public void write(TokenCursor t) throws IOException
+    // Post: the record of the token viewed by t has been written
+    {
+        write(t.getType(), t.getName(), t.getOffset(), t.units(), t.getLine(), t.getColumn());
+    }
+
+    public static long copy(Tokenizer in, OutputStream out) throws IOException
+    // Post: the tokens of in, up to and including EOF_T, have been
+    //       written to out as a stream AND return the number of tokens
+    {
+        TokenStreamWriter w = new TokenStreamWriter(out);
+        long n = 0;
+        TokenCursor t;
+        do {
+            t = in.nextToken();
+            w.write(t);
+            n++;
+        } while (t.getType() != Token.TokenType.EOF_T);
+        return n;
+    }
+
+    public void close() throws IOException
+    // Post: out has been closed
+    {
+        out.close();
+    }
+
+    // Helpers
+
+    private void varint(long n) throws IOException
+    // Pre:  n >= 0
+    // Post: n has been written as a varint
+    {
+        while ((n & ~0x7FL) != 0) {
+            out.write((int)(n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.write((int)n);
+    }
+}
@@ -2,6 +2,16 @@ package tokenizer;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import debug.*;
 
@@ -16,36 +26,142 @@ This class implements a tokenizer which extracts token values from the input str
             =                    ASSIGN_T                     "
             {                    LCB_T                        "
             }                    RCB_T                        "
+            (                    LP_T                         "
+            )                    RP_T                         "
+            +                    ADD_T                        "
+            -                    SUB_T                        "
+            *                    MUL_T                        "
+            /                    DIV_T                        "
+            %                    MOD_T                        "
         int | float              TYPE_T              `,={}' or whitespace
         [a-zA-Z]+                IDENT_T                      "
 
+together with the integers and floats of INT_T and FLOAT_T.  The expressions themselves are the lexical spec 'rules' in ScanTable, from which the machine is compiled, so a token type is added there and nowhere in this class.
 
 STATE:
 
-The state of an object includes the variable 'inFile', which holds references the input file in the form of a BufferedReader object, the boolean flag 'echo' indicating whether the input characters are echoed to standard out, and a variable 'debug' of the class TokenizerDebug which controls display of debug information.  
+The state of an object includes the variable 'inFile', which holds references the input file in the form of a ScanBuffer object -- either reading large blocks from a BufferedReader or scanning the bytes of a memory mapped file -- the boolean flag 'echo' indicating whether the input characters are echoed -- to 'echoTo', which is System.out unless setEcho names another Appendable -- and a variable 'debug' of the class TokenizerDebug which controls display of debug information -- TokenizerDebug.OFF unless setDebug names another.  The flag 'tracing' is a copy of debug.isOn() tested before each call to debug.show in the scanning loop, so that with tracing off the loop does no debugging work at all.  The TokenizerMetrics 'metrics', null unless setMetrics is called, is told of each token scanned -- the malformed token at which a scan in FAIL mode throws included -- and each unit put back; while it is null, the cost is a single test per token.  When neither echo nor tracing is on, the flag 'runs' lets the loop, once a blank, letter or digit has taken the machine around to the same state, hand the rest of that run to ScanBuffer.skip to be passed over at once, rather than one getChar and one transition per unit.  
 
-There are two definitions present for convenience: the value of the constant 'eofChar' is returned by 'getChar' when the end of file is detected, and the enumerated type StateName defines names for the states in finite state machine implemented by GetNextTokens.
+The object 'cursor' is the reusable TokenCursor filled by each call to nextToken, and 'symbols' is the SymbolTable in which keywords are recognized and identifiers interned.  The variables 'line' and 'lineStart' locate the line holding the cursor of inFile; they are updated only on the transitions which consume an end of line.  'lineStart' is a character offset of inFile (ScanBuffer.charOffset), so a column is a count of characters whether the input is read as chars or scanned as UTF-8 bytes, and a token has the same column however its input was opened.
 
-    private BufferedReader inFile;    // the input stream
+A Tokenizer may be reset to scan another input from its start, as a new Tokenizer would but without making one: its settings are kept, the symbol table is cleared back to the keywords but keeps its arrays, and 'chars', the CharScanBuffer it last read a Reader through, is reset to read the new Reader rather than a new buffer being allocated.  A Reader the Tokenizer opened itself, for a file it decodes, is marked by the flag 'owned' and closed by the Tokenizer -- at the end of the input, or when the Tokenizer is reset or detached before then; a Reader it was given is left for the caller to close.  A Tokenizer holds no state shared with any other, so Tokenizers may be made, reset and used on as many threads at once as there are Tokenizers; a TokenizerPool keeps idle ones for reuse.
+
+The variables 'type', 'length', 'symbol', 'value', 'tokenLine' and 'tokenColumn' describe the token found by the last call to scan (its first unit is at the mark of inFile).  The value of an INT_T or FLOAT_T -- a long, or the bits of a double -- is worked out by NumberParser from the units of the token as they lie in inFile, as soon as the machine has found where the token ends, so no String is made for it.  An integer too large for a long, or a float too large for a double, is an ERROR_T.
+
+The variable 'errorMode' says what is done with a malformed token -- one which scans as ERROR_T.  In the default mode, TOKENS, it is simply returned.  In RECOVER mode the token is first extended to the next delimiter (a blank, end of line, end of file, or one of = { } ,), so that scanning resynchronizes there, and a Diagnostic describing it is added to 'diagnostics', which holds at most 'maxDiagnostics' of them; 'errors' counts every one, kept or not.  In FAIL mode the first malformed token throws a MalformedTokenException.  An input which cannot be read throws a TokenizerException, whatever the mode.  None of this is on the path of a well formed token but a single test of its type.
+
+There are three definitions present for convenience: the value of the constant 'eofChar' is returned by 'getChar' when the end of file is detected, and the arrays 'enterMsg' and 'leaveMsg' hold the debug messages for each state of the finite state machine implemented by nextToken.  The states themselves and the transition table are defined in ScanTable.
+
+    private ScanBuffer     inFile;    // the input stream
     private boolean        echo = false;  // if true the input is echoed
+    private Appendable     echoTo = System.out;  // where it is echoed
     private TokenizerDebug debug;     // object which controls the display
                                       // of debugging information from calls
                                       // to debug.show
+    private boolean        tracing;   // debug.isOn()
+    private boolean        runs;      // !echo AND !tracing
+    private TokenizerMetrics metrics; // where scanning is reported, or null
+    private TokenCursor    cursor;    // view of the most recent token
+    private SymbolTable    symbols;   // keywords and interned identifiers
+    private CharScanBuffer chars;     // buffer reused by reset, or null
+    private boolean        owned;     // chars reads a Reader opened by
+                                      // open, which is to be closed
+    private int            line = 1;  // line number of the cursor
+    private long           lineStart = 0;  // character offset of the
+                                           // start of line
+
+    private Token.TokenType type;     // the last token scanned
+    private int            length;
+    private int            symbol;
+    private long           value;
+    private int            tokenLine;
+    private int            tokenColumn;
+
+    private ErrorMode      errorMode = ErrorMode.TOKENS;
+    private List<Diagnostic> diagnostics;  // malformed tokens found
+    private int            maxDiagnostics; // bound on diagnostics.size()
+    private long           errors;    // number of malformed tokens found
                                       
     private static final char eofChar = (char)0;
-    private enum StateName { START_S, ID_S, DONE_S };
+    private static final int  bufSize = 1 << 16;  // initial size of the
+                                                  // input buffer
+    private static final int  maxSymbols = 1 << 16;  // bound on the number
+                                                     // of interned names
+    private static final String[] enterMsg;  // debug messages by state
+    private static final String[] leaveMsg;
 
    
 INTERFACE:
 
 The interface includes a constructor
 
-The interface of this class includes the constructor 
+The interface of this class includes the constructors
     
     public Tokenizer (BufferedReader in, boolean echo)
-    // Post: inFile == in AND this.echo == echo
+    // Post: inFile reads from in AND this.echo == echo
+
+    public Tokenizer (Path path, Charset charset, boolean echo) throws IOException
+    // Pre:  path names a readable file
+    // Post: inFile reads the characters of the file in charset -- or if
+    //       charset is null, in the charset named by its byte order mark
+    //       if it has one, else UTF-8 -- AND this.echo == echo
+
+    public Tokenizer (Path path, boolean echo) throws IOException
+    // Post: as above with charset null
+
+The charset of a file is never guessed from the platform default.  A regular file in UTF-8 or US-ASCII is mapped into memory and its bytes scanned directly, so there is no decoding pass and no array of chars at all; a file in any other charset (UTF-16, say, named by its byte order mark) and anything which is not a regular file, such as a pipe, is decoded through a Reader into a CharScanBuffer.  A byte order mark is never part of a token.
+
+and the following methods, which identify tokens on the input stream.  The first returns the next token in the reusable TokenCursor, whose characters are a view of the input buffer, so that a consumer can walk the tokens without producing garbage.
+
+    public TokenCursor nextToken()
+    // Pre:  inFile has a value
+    // Post: as for getNextToken AND return cursor, which views the
+    //       characters of the token in inFile -- cursor is valid until
+    //       the next call to nextToken or getNextToken
+
+The second returns the next token as a new Token object -- it is the method of the TokenSource interface, which Tokenizer implements.  The third fills a TokenBatch with as many tokens as it can hold, so that a consumer can take the tokens in blocks of primitive arrays.
+
+    public int nextTokens(TokenBatch batch)
+    // Pre:  inFile has a value
+    // Post: batch holds the next n tokens of inFile, where n is its
+    //       capacity -- Except the tokens stop after an EOF_T AND
+    //       return n
+
+    public void setMetrics(TokenizerMetrics metrics)
+    // Post: this.metrics == metrics AND inFile reports the time it waits
+    //       for input to metrics -- null turns the reports off
+
+    public void setEcho(Appendable out)
+    // Post: echoTo == out
+
+    public void setDebug(TokenizerDebug debug)
+    // Post: this.debug == debug AND tracing == debug.isOn()
+
+    public void reset(BufferedReader in)
+    // Post: inFile reads from in AND line == 1 AND no errors have been
+    //       found AND symbols holds only the keywords AND a Reader the
+    //       Tokenizer opened for its last input is closed -- the
+    //       settings of echo, metrics, error mode and debug are kept
 
-and the following method, which identifies tokens on the input stream, returning the next one each time it is called.
+    public void reset(Path path, Charset charset) throws IOException
+    public void reset(Path path) throws IOException
+    // Pre:  path names a readable file
+    // Post: as above, with inFile reading the file as for the
+    //       constructors
+
+    public void setErrorMode(ErrorMode mode, int maxDiagnostics)
+    // Pre:  maxDiagnostics >= 0
+    // Post: errorMode == mode AND at most maxDiagnostics diagnostics are
+    //       kept
+
+    public List<Diagnostic> getDiagnostics()
+    // Post: return the diagnostics kept so far, in input order
+
+    public long getErrorCount()
+    // Post: return the number of malformed tokens found in RECOVER or
+    //       FAIL mode -- including those whose diagnostics were not kept
+
+The nested enum ErrorMode has the values TOKENS, RECOVER and FAIL described above.  The token methods throw TokenizerException if inFile cannot be read, and MalformedTokenException at a malformed token in FAIL mode.
 
     public Token getNextToken()
     // Pre:  inFile has a value
@@ -65,16 +181,86 @@ HELPER METHODS:
    
 There are x helper methods:
 
+    private void scan()
+    // Pre:  inFile has a value
+    // Post: inFile has initial blanks removed as well as the characters
+    //       of the next token on inFile AND type, length, symbol,
+    //       value, tokenLine and tokenColumn describe that token
+
+    private void number()
+    // Pre:  type is INT_T or FLOAT_T
+    // Post: value is the value of the token -- Except type is ERROR_T
+    //       if it is out of range
+
+    private void error()
+    // Pre:  scan has found a malformed token AND errorMode != TOKENS
+    // Post: the token is extended to the next delimiter if errorMode is
+    //       RECOVER AND it is recorded in diagnostics, if there is room,
+    //       and errors -- Except throw MalformedTokenException if
+    //       errorMode is FAIL
+
+    private static String expected(String text)
+    // Pre:  text is the start of a malformed token
+    // Post: return what the scanner expected, in words
+
+    private static boolean isDigit(char ch)
+    // Post: return true if ch is 0 .. 9
+
+    private static ScanBuffer open(Path path, Charset charset, CharScanBuffer chars) throws IOException
+    // Pre:  path names a readable file
+    // Post: return a ScanBuffer over its characters, as described for
+    //       the constructor -- chars reset, if a CharScanBuffer is
+    //       needed and chars is not null
+
+    private void release()
+    // Post: the Reader of chars is closed if owned AND !owned -- Except
+    //       throw TokenizerException if it cannot be closed
+
+There are package methods used by ParallelTokenizer to place the tokens of a chunk in the whole file, and by IncrementalTokenizer to scan again from a token in the middle of its text:
+
+    int line()
+    // Post: return line
+
+    int column()
+    // Post: return the column of the cursor of inFile
+
+    long scanned()
+    // Post: return the offset of the cursor of inFile -- every unit
+    //       before it has been read by the scans so far
+
+    void restart(ScanBuffer in, int line, long lineStart)
+    // Pre:  the cursor of in is at the start of a token or of the input
+    //       AND it is on the given line, which starts at offset
+    //       lineStart AND each unit from there to the cursor is a
+    //       character of its own
+    // Post: inFile == in AND this.line == line AND lineStart is the
+    //       character offset of lineStart
+
+and package methods used by reset and by TokenizerPool:
+
+    void reset(ScanBuffer in)
+    // Post: inFile == in, at its start AND the rest is as for reset
+
+    void detach()
+    // Post: inFile is empty, so no input is held AND a Reader the
+    //       Tokenizer opened is closed AND echoTo, metrics, error mode
+    //       and debug are as for a new Tokenizer
+
 	private char getChar()
 	// Pre:  ch is the character at the head of inFile
 	// Post: inFile is original inFile with ch removed AND
 	//       return ch -- Except
-	//       if inFile.eof is true return tab character
-	//       if ch is tab or eol return blank character
+	//       if inFile.eof is true return eofChar
 
     private void putBackChar(char ch)
     // Pre:  inFile has a value
     // Post: inFile is the original inFile with ch added as its first character
+    //       -- the cursor of inFile is moved back, nothing is re-read
+
+    private int string2Token(int start, int length)
+    // Pre:  the units start .. start+length-1 of inFile are letters
+    // Post: return the symbol number of the word in symbols -- its
+    //       type is TYPE_T if it is "int" or "float" else IDENT_T
 
 CLASS INVARIANT:  
 
@@ -90,7 +276,7 @@ The class invariant indicates the input stream pointer is at the next character
 */
 
 
-public class Tokenizer{
+public class Tokenizer implements TokenSource {
 
     // Class Invariant: 
     //    When GetNextToken is called the inFile pointer is at either 
@@ -100,33 +286,111 @@ public class Tokenizer{
           
     // State
 		
-    private BufferedReader inFile;    // the input stream
+    private ScanBuffer     inFile;    // the input stream
     private boolean        echo = false;  // if true the input is echoed
-    private TokenizerDebug debug;     // object which controls the display
+    private Appendable     echoTo = System.out;  // where it is echoed
+    private TokenizerDebug debug = TokenizerDebug.OFF;
+                                      // object which controls the display
                                       // of debugging information from calls
                                       // to debug.show
+    private boolean        tracing = false;  // debug.isOn()
+    private boolean        runs;      // neither echo nor tracing is on, so
+                                      // runs of units may be skipped whole
+    private TokenizerMetrics metrics = null;  // where scanning is
+                                              // reported, or null
+
+    public enum ErrorMode { TOKENS, RECOVER, FAIL };
+
+    private ErrorMode      errorMode = ErrorMode.TOKENS;
+    private List<Diagnostic> diagnostics = Collections.emptyList();
+    private int            maxDiagnostics = 0;  // bound on diagnostics
+    private long           errors = 0;  // malformed tokens found
+    private TokenCursor    cursor;    // view of the most recent token
+    private SymbolTable    symbols;   // keywords and interned identifiers
+    private CharScanBuffer chars = null;  // buffer reused by reset
+    private boolean        owned = false;  // chars reads a Reader opened
+                                           // by open, which is to be
+                                           // closed
+    private int            line = 1;  // line number of the cursor
+    private long           lineStart = 0;  // character offset of the
+                                           // start of line
+
+    private Token.TokenType type;     // the last token scanned
+    private int            length;    // its length in units
+    private int            symbol;    // its symbol number
+    private long           value;     // its value, if it is a number
+    private int            tokenLine;    // line of its first unit
+    private int            tokenColumn;  // column of its first unit
 
     private static final char eofChar = (char)0;
-    private enum StateName { START_S, ID_S, DONE_S, ZERO_S, INT_S, FLOAT_S, PERI_S, ERROR_S};
+    private static final int  bufSize = 1 << 16;  // initial size of the
+                                                  // input buffer
+    private static final int  maxSymbols = 1 << 16;  // bound on the number
+                                                     // of interned names
+
+    private static final String[] enterMsg = new String[ScanTable.NUM_STATES];
+    private static final String[] leaveMsg = new String[ScanTable.NUM_STATES];
+    static {  // debug messages for each state, built once
+        for (int s = 0; s != ScanTable.NUM_STATES; s++) {
+            enterMsg[s] = "\t>>> Entering state -- " + ScanTable.stateName(s) + ": ";
+            leaveMsg[s] = "\t<<< Leaving state -- " + ScanTable.stateName(s) + ": ";
+        }
+    }
 
     
     // Constructor
     
     public Tokenizer (BufferedReader in, boolean echo)
+    // Post: inFile reads from in AND this.echo == echo
+    {
+            this(new CharScanBuffer(in, bufSize), echo);
+    }
+
+    public Tokenizer (Path path, Charset charset, boolean echo) throws IOException
+    // Pre:  path names a readable file
+    // Post: inFile reads the characters of the file in charset -- or if
+    //       charset is null, in the charset named by its byte order mark
+    //       if it has one, else UTF-8 -- AND this.echo == echo
+    {
+            this(open(path, charset, null), echo);
+            this.owned = chars != null;  // open made a Reader
+    }
+
+    public Tokenizer (Path path, boolean echo) throws IOException
+    // Post: as above with charset null
+    {
+            this(path, null, echo);
+    }
+
+    Tokenizer (ScanBuffer in, boolean echo)
     // Post: inFile == in AND this.echo == echo
     {
             this.inFile = in;
+            this.lineStart = in.charOffset();  // past any byte order mark
             this.echo = echo;
-            this.debug = new TokenizerDebug();		
+            this.runs = !echo;
+            this.cursor = new TokenCursor();
+            this.symbols = new SymbolTable(maxSymbols);
+            if (in instanceof CharScanBuffer)
+                this.chars = (CharScanBuffer)in;
     }
     
     // Interface -- public methods
     
     public Token getNextToken()
     // Pre:  inFile has a value
+    // Post: as for nextToken AND return a Token holding the type and
+    //       characters of cursor
+    {
+        return nextToken().toToken();
+    }
+
+    public TokenCursor nextToken()
+    // Pre:  inFile has a value
     // Post: inFile has initial blanks removed as well as the characters
     //       of the next token on inFile.  The tokens are determined by the
-    //       finite state machine for the following regular expression
+    //       finite state machine in ScanTable for the following regular
+    //       expression
     //       Regular Expression
     //           ,               
     //           = 
@@ -134,221 +398,368 @@ public class Tokenizer{
     //           } 
     //       int | float 
     //        [a-zA-Z]+
+    //       AND return cursor viewing that token
     {
-        debug.show(">>> Entering getNextToken");
-        StateName state = StateName.START_S;
-        
-        Token.TokenType type = Token.TokenType.ERROR_T;
-        String    name  = "";
+        debug.show(">>> Entering nextToken");
+        scan();
+        cursor.set(type, inFile, inFile.markIndex(), length, inFile.markOffset(),
+                   tokenLine, tokenColumn, value, symbol, symbols);
+        debug.show("<<< Leaving nextToken");       
+        return cursor;
+    }
 
-        while (state != StateName.DONE_S) {
-            char ch = getChar();
-            switch (state) {
-                case START_S:
-                    debug.show("\t>>> Entering state -- START_S: ", ch);
-                    if (ch == ' ') {
-                        state = StateName.START_S;
-                    }
-                    else if (ch == eofChar) {
-                        type  = Token.TokenType.EOF_T;
-                        state = StateName.DONE_S;
-                    }
-                    else if (Character.isLetter(ch)) {
-                        name += ch;
-                        state = StateName.ID_S;
-                    }
-                    else if (ch == '0') {
-                        name += ch;
-                        state = StateName.ZERO_S;
-                    }
-                    else if (Character.isDigit(ch)) {
-                        name += ch;
-                        state = StateName.INT_S;
-                    }
-                    else if (ch == '.') {
-                        name += ch;
-                        state = StateName.PERI_S;
-                    }
-                    else { //Assert: illegal character
-                        name += ch;
-                        type = char2Token(ch);
-                        state = StateName.DONE_S;
-                    }
-                    debug.show("\t<<< Leaving state -- START_S: ", ch);                       
-                    break;
-                case ID_S:
-                    debug.show("\t>>> Entering state -- ID_S: ", ch);
-                    if (Character.isLetter(ch)) {
-                        name += ch;
-                        state = StateName.ID_S; }
-                    else {
-                        putBackChar(ch); // since an epsilon-transition
-                        type = string2Token(name);
-                        state = StateName.DONE_S;
-                    }
-                    debug.show("\t<<< Leaving state -- ID_S: ", ch);                       
-                    break;
-                case ZERO_S:
-                    debug.show("\t>>> Entering state -- ZERO_S", ch);
-                    if (Character.isDigit(ch)) {
-                        type = Token.TokenType.ERROR_T;
-                        state = StateName.ERROR_S;
-                    }
-                    else {
-                        type = Token.TokenType.INT_T;
-                        state = StateName.ZERO_S;
-                    }
-                    debug.show("\t<<< Leaving state -- ZERO_S", ch);
-                    break;
-                case INT_S:
-                    debug.show("\t>>> Entering state -- INT_S", ch);
-                    if (ch == '.') {
-                        name += ch;
-                        type = Token.TokenType.PERI_T;
-                        state = StateName.PERI_S;
-                    }
-                    else if (Character.isDigit(ch)){
-                        name += ch;
-                        type = Token.TokenType.INT_T;
-                        state = StateName.INT_S;
-                    }
-                    else {
-                        putBackChar(ch);
-                        type = Token.TokenType.INT_T;
-                        state = StateName.DONE_S;
-                    }
-                    debug.show("\t<<< Leaving state -- INT_S", ch);
-                    break;
-                case PERI_S:
-                    debug.show("\t>>> Entering state -- PERI_S", ch);
-                    if (Character.isDigit(ch)) {
-                        type = Token.TokenType.FLOAT_T;
-                        state = StateName.FLOAT_S;
-                    }
-                    else if (!Character.isDigit(ch)) {
-                        type = Token.TokenType.ERROR_T;
-                        state = StateName.DONE_S;
-                    }
-                    debug.show("\t<<< Leaving state -- PERI_S", ch);
-                    break;
-                case FLOAT_S:
-                    debug.show("\t>>> Entering state -- FLOAT_S", ch);
-                    if (Character.isDigit(ch)) {
-                        type = Token.TokenType.FLOAT_T;
-                        state = StateName.FLOAT_S;
-                    }
-                    else {
-                        type = Token.TokenType.ERROR_T;
-                        state = StateName.DONE_S;
-                    }
-                    debug.show("\t<<< Leaving state -- FLOAT_S", ch);
-                    break;
-                case DONE_S: // Should never get here!  For completeness.
-                    debug.show("\t>>> Entering state -- DONE_S: ", ch);
-                    debug.show("\t<<< Leaving state -- DONE_S: ", ch);
-                    break;
-            }
+    public int nextTokens(TokenBatch batch)
+    // Pre:  inFile has a value
+    // Post: batch holds the next n tokens of inFile, where n is its
+    //       capacity -- Except the tokens stop after an EOF_T AND
+    //       return n
+    {
+        batch.clear();
+        do {
+            scan();
+            batch.add(type, inFile.markOffset(), length, tokenLine, tokenColumn, value);
+        } while (type != Token.TokenType.EOF_T && batch.size() != batch.capacity());
+        return batch.size();
+    }
+    
+    public void setMetrics(TokenizerMetrics metrics)
+    // Post: this.metrics == metrics AND inFile reports the time it waits
+    //       for input to metrics -- null turns the reports off
+    {
+        this.metrics = metrics;
+        inFile.watch(metrics);
+    }
 
-        }
+    public void setEcho(Appendable out)
+    // Post: echoTo == out
+    {
+        this.echoTo = out;
+    }
 
-        Token token = new Token(type, name);
+    public void setDebug(TokenizerDebug debug)
+    // Post: this.debug == debug AND tracing == debug.isOn()
+    {
+        this.debug = debug;
+        this.tracing = debug.isOn();
+        this.runs = !echo && !tracing;
+    }
 
-        debug.show("<<< Leaving getNextToken");       
-        return token;
+    public void reset(BufferedReader in)
+    // Post: inFile reads from in AND line == 1 AND no errors have been
+    //       found AND symbols holds only the keywords AND a Reader the
+    //       Tokenizer opened for its last input is closed -- the
+    //       settings of echo, metrics, error mode and debug are kept
+    {
+        release();
+        reset((chars != null) ? chars.reset(in) : new CharScanBuffer(in, bufSize));
     }
-    
+
+    public void reset(Path path, Charset charset) throws IOException
+    // Pre:  path names a readable file
+    // Post: as above, with inFile reading the file in charset as for the
+    //       constructors
+    {
+        release();
+        reset(open(path, charset, chars));
+        owned = inFile instanceof CharScanBuffer;  // open made a Reader
+    }
+
+    public void reset(Path path) throws IOException
+    // Post: as above with charset null
+    {
+        reset(path, null);
+    }
+
+    public void setErrorMode(ErrorMode mode, int maxDiagnostics)
+    // Pre:  maxDiagnostics >= 0
+    // Post: errorMode == mode AND at most maxDiagnostics diagnostics are
+    //       kept
+    {
+        this.errorMode = mode;
+        this.maxDiagnostics = maxDiagnostics;
+        if (diagnostics.isEmpty())
+            diagnostics = new ArrayList<Diagnostic>();
+    }
+
+    public List<Diagnostic> getDiagnostics()
+    // Post: return the diagnostics kept so far, in input order
+    {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    public long getErrorCount()
+    // Post: return the number of malformed tokens found in RECOVER or
+    //       FAIL mode
+    {
+        return errors;
+    }
+
+    // Package methods
+
+    int line() { return line; }
+    // Post: return line
+
+    int column() { return (int)(inFile.charOffset() - lineStart) + 1; }
+    // Post: return the column of the cursor of inFile
+
+    long scanned() { return inFile.offset(); }
+    // Post: return the offset of the cursor of inFile
+
+    void restart(ScanBuffer in, int line, long lineStart)
+    // Pre:  the cursor of in is at the start of a token or of the input
+    //       AND it is on the given line, which starts at offset
+    //       lineStart AND each unit from there to the cursor is a
+    //       character of its own
+    // Post: inFile == in AND this.line == line AND this.lineStart is
+    //       the character offset of lineStart
+    {
+        this.inFile = in;
+        this.line = line;
+        this.lineStart = lineStart - (in.offset() - in.charOffset());
+        in.watch(metrics);
+    }
+
+    void reset(ScanBuffer in)
+    // Post: inFile == in, at its start AND line == 1 AND no errors have
+    //       been found AND symbols holds only the keywords
+    {
+        restart(in, 1, in.offset());  // past any byte order mark
+        if (in instanceof CharScanBuffer)
+            chars = (CharScanBuffer)in;
+        errors = 0;
+        if (!diagnostics.isEmpty())
+            diagnostics = new ArrayList<Diagnostic>();
+        symbols.clear();
+    }
+
+    void detach()
+    // Post: inFile is empty, so no input is held AND a Reader the
+    //       Tokenizer opened is closed AND echoTo, metrics, error mode
+    //       and debug are as for a new Tokenizer
+    {
+        metrics = null;
+        errorMode = ErrorMode.TOKENS;
+        maxDiagnostics = 0;
+        diagnostics = Collections.emptyList();
+        echoTo = System.out;
+        setDebug(TokenizerDebug.OFF);
+        release();
+        reset((chars != null) ? chars.reset(null) : new ByteScanBuffer(ByteBuffer.allocate(0)));
+    }
+
     // Helpers -- private methods
 
-    private Token.TokenType char2Token(char ch) {
-        //Pre: inFile has a value
-        //Post: The four characters: "=", "{", "}", "," will be returned
-        // to its token type. Any other character
-        //that is invalid will be returned to ERROR_T.
-        if (ch == '=') {
-            return Token.TokenType.ASSIGN_T;
-        }
-        else if (ch == '{') {
-            return Token.TokenType.LCB_T;
+    private void scan()
+    // Pre:  inFile has a value
+    // Post: inFile has initial blanks removed as well as the characters
+    //       of the next token on inFile AND type, length, symbol,
+    //       tokenLine and tokenColumn describe that token
+    {
+        int state = ScanTable.START;
+        long started = (metrics != null) ? System.nanoTime() : 0;
+        long from = (metrics != null) ? inFile.offset() : 0;
+        
+        type   = Token.TokenType.ERROR_T;
+        symbol = SymbolTable.NO_SYMBOL;
+        value  = 0;
+        long end = 0;  // offset just past the last unit accepted
+
+        inFile.mark();
+        tokenLine   = line;
+        long tokenLineStart = lineStart;
+        while (state != ScanTable.DONE) {
+            char ch = getChar();
+            int entry = ScanTable.transition(state, ch);
+            if (tracing) debug.show(enterMsg[state], ch);
+
+            if ((entry & ScanTable.APPEND) != 0)
+                end = inFile.offset();
+            else if ((entry & ScanTable.MARK) != 0) {
+                if ((entry & ScanTable.LINE) != 0) {
+                    line++;
+                    lineStart = inFile.charOffset();
+                }
+                inFile.mark();  // the token starts after the blank
+                tokenLine = line;
+                tokenLineStart = lineStart;
+            }
+            else if ((entry & ScanTable.PUTBACK) != 0)
+                putBackChar(ch); // since an epsilon-transition
+            else if ((entry & ScanTable.LINE) != 0) {
+                line++;  // the end of line ends the token
+                lineStart = inFile.charOffset();
+            }
+
+            int t = (entry >>> ScanTable.TYPE_SHIFT) & 0xFF;
+            if (t != 0)
+                type = ScanTable.types[t - 1];
+            else if ((entry & ScanTable.KEYWORD) != 0) {
+                symbol = string2Token(inFile.markIndex(), (int)(end - inFile.markOffset()));
+                type = symbols.type(symbol);
+            }
+
+            if (tracing) debug.show(leaveMsg[state], ch);
+            int next = entry & ScanTable.STATE_MASK;
+            if (runs && next == state) {  // skip the rest of the run
+                int run = ScanTable.runOf[state];
+                if (run == ScanBuffer.BLANKS) {
+                    if (inFile.skip(run) != 0)
+                        inFile.mark();
+                }
+                else if (run != ScanTable.NO_RUN && inFile.skip(run) != 0)
+                    end = inFile.offset();
+            }
+            state = next;
         }
-        else if (ch == '}') {
-            return Token.TokenType.RCB_T;
+
+        long start = inFile.markOffset();
+        length = (end > start) ? (int)(end - start) : 0;
+        tokenColumn = (int)(inFile.markCharOffset() - tokenLineStart) + 1;
+        if (type == Token.TokenType.INT_T || type == Token.TokenType.FLOAT_T)
+            number();
+        try {
+            if (type == Token.TokenType.ERROR_T && errorMode != ErrorMode.TOKENS)
+                error();
         }
-        else if (ch == ',') {
-            return Token.TokenType.COMMA_T;
+        finally {  // the token is counted even if it ends the scan in FAIL mode
+            if (metrics != null)
+                metrics.tokenScanned(type, inFile.offset() - from, System.nanoTime() - started);
         }
-        else
-            return Token.TokenType.ERROR_T;
     }
 
-//    private Token.TokenType int2Token(String str) {
-//        //Pre: str is a string of alphabetic or numeric characters
-//        //Post: return "INT_T" if there are integers in the inFile
-//        str = str.replaceAll("[^0-9]+", " ");
-//        String[] tokens = str.split("\\s+");
-//        int [] ary = new int [tokens.length];
-//
-//        int i = 0;
-//        for (String token : tokens) {
-//            ary[i++] = Integer.parseInt(token);
-//        }
-//        if (ary.length != 0) {
-//            for (i = 0; i < ary.length; i++) {
-//                return Token.TokenType.INT_T;
-//            }
-//        }
-//        else {
-//            return Token.TokenType.
-//        }
-
-//        for (int i = 0; i < splited.length; i++) {
-//            try {
-//                result[i] = Integer.parseInt(splited);
-//            } catch (NumberFormatException nfe) {};
-//        }
-//    }
-
-//    private Token.TokenType float2Token(char ch) {
-//
-//    }
-
-    private Token.TokenType string2Token(String str) {
-        //Pre: str is a string of alphabetic characters
-        //Post: return TYPE_T if str == "int" or "float"
-        //otherwise return IDENT_T
-
-        if (str.equals("int")) {
-            return Token.TokenType.TYPE_T;
+    private void number()
+    // Pre:  type is INT_T or FLOAT_T
+    // Post: value is the value of the token -- Except type is ERROR_T
+    //       if it is out of range
+    {
+        if (type == Token.TokenType.INT_T) {
+            value = NumberParser.parseLong(inFile, inFile.markIndex(), length);
+            if (value < 0)
+                type = Token.TokenType.ERROR_T;
         }
-        else if (str.equals("float")) {
-            return Token.TokenType.TYPE_T;
+        else {
+            double d = NumberParser.parseDouble(inFile, inFile.markIndex(), length);
+            if (Double.isInfinite(d))
+                type = Token.TokenType.ERROR_T;
+            value = Double.doubleToRawLongBits(d);
+        }
+    }
+
+    private void error()
+    // Pre:  scan has found a malformed token AND errorMode != TOKENS
+    // Post: the token is extended to the next delimiter if errorMode is
+    //       RECOVER AND it is recorded in diagnostics, if there is room,
+    //       and errors -- Except throw MalformedTokenException if
+    //       errorMode is FAIL
+    {
+        String why = expected(inFile.text(inFile.markIndex(), Math.min(length, Diagnostic.MAX_TEXT)));
+        if (errorMode == ErrorMode.RECOVER) {  // resynchronize
+            char ch;
+            do {
+                ch = getChar();
+            } while (!ScanTable.isDelimiter(ScanTable.classOf(ch)));
+            putBackChar(ch);
+            length = (int)(inFile.offset() - inFile.markOffset());
         }
+
+        String text = inFile.text(inFile.markIndex(), Math.min(length, Diagnostic.MAX_TEXT));
+        Diagnostic d = new Diagnostic(inFile.markOffset(), tokenLine, tokenColumn, why, text);
+        errors++;
+        if (errorMode == ErrorMode.FAIL)
+            throw new MalformedTokenException(d);
+        if (diagnostics.size() < maxDiagnostics)
+            diagnostics.add(d);
+    }
+
+    private static String expected(String text)
+    // Pre:  text is the start of a malformed token, as scanned
+    // Post: return what the scanner expected, in words
+    {
+        char first = text.isEmpty() ? eofChar : text.charAt(0);
+        char last  = text.isEmpty() ? eofChar : text.charAt(text.length() - 1);
+        if (first == '0' && text.length() > 1 && isDigit(text.charAt(1)))
+            return "a delimiter or '.' after a leading 0";
+        else if (last == '.')
+            return "a digit after '.'";
+        else if ("eE+-".indexOf(last) != -1 && (first == '.' || isDigit(first)))
+            return "a digit in the exponent";
+        else if (text.chars().allMatch(ch -> isDigit((char)ch)))
+            return "an integer no larger than " + Long.MAX_VALUE;
+        else if (isDigit(first))
+            return "a number no larger than " + Double.MAX_VALUE;
         else
-            return Token.TokenType.IDENT_T;
+            return "a letter, digit, blank or one of `={},()+-*/%'";
+    }
+
+    private static boolean isDigit(char ch)
+    // Post: return true if ch is 0 .. 9 -- no other digit is scanned as
+    //       part of a number
+    {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static ScanBuffer open(Path path, Charset charset, CharScanBuffer chars) throws IOException
+    // Pre:  path names a readable file
+    // Post: return a ScanBuffer over its characters, as described for
+    //       the constructor -- chars reset, if a CharScanBuffer is
+    //       needed and chars is not null
+    {
+        boolean regular = Files.isRegularFile(path);
+        if (charset == null)
+            charset = regular ? ByteScanBuffer.charsetOf(path) : StandardCharsets.UTF_8;
+        if (regular && (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)))
+            return ByteScanBuffer.map(path);
+        Reader in = new InputStreamReader(Files.newInputStream(path), charset);
+        return (chars != null) ? chars.reset(in) : new CharScanBuffer(in, bufSize);
+    }
+
+    private void release()
+    // Post: the Reader of chars is closed if owned AND !owned -- Except
+    //       throw TokenizerException if it cannot be closed
+    {
+        if (!owned)
+            return;
+        owned = false;
+        try { chars.close(); }
+        catch (IOException e) {
+            throw new TokenizerException("Problem closing input file", inFile.offset(), line,
+                                         column(), e);
+        }
+    }
+
+    private int string2Token(int start, int length) {
+        //Pre: the units start .. start+length-1 of inFile are letters
+        //Post: return the symbol number of the word in symbols -- its
+        //type is TYPE_T if it is "int" or "float" else IDENT_T
+        return symbols.lookup(inFile, start, length);
     }
     
 	private char getChar()
 	// Pre:  ch is the character at the head of inFile
 	// Post: inFile is original inFile with ch removed AND
 	//       return ch -- Except
-	//       if inFile.eof is true return tab character
-	//       if ch is tab or eol return blank character
+	//       if inFile.eof is true return eofChar
 	{
 		char ch;
 
 		int v = 0;
 		
-		try { inFile.mark(1); v = inFile.read(); }
+		try { v = inFile.next(); }
 		catch (IOException e) { 
-			System.out.println("Problem reading open input file!"); 
-			System.exit(0); 
+			throw new TokenizerException("Problem reading open input file", inFile.offset(), line,
+			                             column(), e);
 		}
 
-		if (v == -1)
+		if (v == ScanBuffer.EOF) {
 			ch = eofChar;
+			if (owned)
+				release();  // the Reader open made is done with
+		}
 		else {
 			ch = (char)v;
-			if (echo) System.out.print(ch);
-			if (ch == '\n' || ch == '\t') ch = ' ';
+			if (echo)
+				try { echoTo.append(ch); }
+				catch (IOException e) { }  // a lost echo is not an error
 		}
 
 		return ch;
@@ -358,12 +769,12 @@ public class Tokenizer{
     // Pre:  inFile has a value
     // Post: inFile is the original inFile with ch added as its first character
     {
-       debug.show(">>> Entering putBackChar");   
+       if (tracing) debug.show(">>> Entering putBackChar");   
               
-       try { if (ch != eofChar) { inFile.reset(); }   }
-       catch(IOException e)     { System.exit(0); }
+       if (ch != eofChar) { inFile.back(); }
+       if (metrics != null) metrics.pushedBack();
 
-       debug.show("<<< Leaving putBackChar");                             
+       if (tracing) debug.show("<<< Leaving putBackChar");                             
     }
 
 
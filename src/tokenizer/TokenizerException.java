@@ -0,0 +1,63 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This class is the exception thrown by a Tokenizer which cannot go on: its input could not be read (the cause is then the IOException), or it met a malformed token in the FAIL error mode (a MalformedTokenException).  It is unchecked, as the tokens are handed out by getNextToken, which declares no exceptions, and it carries the position in the input where the scan stopped, counted as for a Token.
+
+STATE:
+
+    private long offset;   // offset in the input where the scan stopped
+    private int  line;     // line of that offset
+    private int  column;   // column of that offset
+
+INTERFACE:
+
+    public TokenizerException(String message, long offset, int line,
+                              int column, Throwable cause)
+    // Post: the message, position and cause are the arguments
+
+    public long getOffset()
+    public int  getLine()
+    public int  getColumn()
+    // Post: return the field
+
+HELPER METHODS:
+
+There are no helper methods.
+
+CLASS INVARIANT:
+
+This class has no class invariant.
+
+*/
+
+public class TokenizerException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // State
+
+    private final long offset;
+    private final int  line;
+    private final int  column;
+
+    // Constructor
+
+    public TokenizerException(String message, long offset, int line, int column, Throwable cause)
+    // Post: the message, position and cause are the arguments
+    {
+        super(message + " at line " + line + ", column " + column, cause);
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+    }
+
+    // Interface -- public methods
+
+    public long getOffset() { return offset; }
+    public int  getLine()   { return line; }
+    public int  getColumn() { return column; }
+    // Post: return the field
+}
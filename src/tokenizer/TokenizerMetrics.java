@@ -0,0 +1,38 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This interface is the hook through which a Tokenizer reports what it does, for diagnostics in production where the print-based debug package is of no use.  A Tokenizer given a TokenizerMetrics with setMetrics calls it after each token it scans, on each unit it puts back, and whenever it waits for its input to deliver more units; a Tokenizer with none (the default) tests one field per token and per put back, and does no other work.
+
+TokenizerStats is the implementation which counts everything and publishes the counts as a JMX MXBean.  An implementation may instead pass the events on to another recorder -- on a JDK with jdk.jfr, for instance, 'tokenScanned' can commit a custom JFR event for tokens which take too long.
+
+The calls are made on the thread which is scanning, so an implementation shared by Tokenizers on several threads must be thread safe.
+
+INTERFACE:
+
+    void tokenScanned(Token.TokenType type, long units, long nanos)
+    // Post: a token of type has been scanned, taking units input units
+    //       (the blanks before it included) and nanos nanoseconds
+
+    void pushedBack()
+    // Post: a unit read past the end of a token has been put back
+
+    void waited(long nanos)
+    // Post: the input took nanos nanoseconds to deliver more units
+
+*/
+
+public interface TokenizerMetrics {
+
+    void tokenScanned(Token.TokenType type, long units, long nanos);
+    // Post: a token of type has been scanned, taking units input units
+    //       (the blanks before it included) and nanos nanoseconds
+
+    void pushedBack();
+    // Post: a unit read past the end of a token has been put back
+
+    void waited(long nanos);
+    // Post: the input took nanos nanoseconds to deliver more units
+}
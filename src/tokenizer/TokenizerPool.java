@@ -0,0 +1,121 @@
+package tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+
+DESCRIPTION:
+
+This class keeps idle Tokenizers for reuse, for a service which tokenizes one input per request on many threads at once.  'take' hands out an idle Tokenizer reset to the new input -- or a new one, if none is idle -- and 'give' takes it back when the request is done.  A reused Tokenizer keeps the buffers and symbol table it has grown, so a request pays neither for allocating them nor for growing them again.
+
+A Tokenizer given back is first detached from its input, so the pool holds no reference to the input of a finished request, and its settings are put back as for a new Tokenizer, so nothing set by one request is seen by the next.  At most 'capacity' Tokenizers are kept; one given back to a full pool is dropped, so the pool never grows beyond the number of requests which were ever in progress at once, up to capacity.
+
+The idle Tokenizers are held in an ArrayBlockingQueue, which take and give use without blocking, so they may be called from any number of threads.  A Tokenizer itself is not thread safe: it must be used by one thread at a time between take and give, and not used at all after it is given back.
+
+STATE:
+
+    private ArrayBlockingQueue<Tokenizer> idle;  // at most capacity
+
+INTERFACE:
+
+    public TokenizerPool(int capacity)
+    // Pre:  capacity > 0
+    // Post: the pool is empty AND keeps at most capacity Tokenizers
+
+    public Tokenizer take(BufferedReader in)
+    // Post: return a Tokenizer which is not echoing, over in, as for
+    //       Tokenizer.reset -- an idle one if there is one
+
+    public Tokenizer take(Path path, Charset charset) throws IOException
+    public Tokenizer take(Path path) throws IOException
+    // Pre:  path names a readable file
+    // Post: as above, over the file as for the constructors of Tokenizer
+
+    public void give(Tokenizer t)
+    // Pre:  t was taken from this pool and is not used again
+    // Post: t is detached from its input AND it is idle, unless the pool
+    //       already held capacity Tokenizers
+
+    public int idle()
+    // Post: return the number of idle Tokenizers
+
+HELPER METHODS:
+
+There are no helper methods.
+
+CLASS INVARIANT:
+
+    every Tokenizer in idle is detached and not echoing
+
+*/
+
+public class TokenizerPool {
+
+    // State
+
+    private final ArrayBlockingQueue<Tokenizer> idle;  // at most capacity
+
+    // Constructor
+
+    public TokenizerPool(int capacity)
+    // Pre:  capacity > 0
+    // Post: the pool is empty AND keeps at most capacity Tokenizers
+    {
+        idle = new ArrayBlockingQueue<Tokenizer>(capacity);
+    }
+
+    // Interface -- public methods
+
+    public Tokenizer take(BufferedReader in)
+    // Post: return a Tokenizer which is not echoing, over in, as for
+    //       Tokenizer.reset -- an idle one if there is one
+    {
+        Tokenizer t = idle.poll();
+        if (t == null)
+            return new Tokenizer(in, false);
+        t.reset(in);
+        return t;
+    }
+
+    public Tokenizer take(Path path, Charset charset) throws IOException
+    // Pre:  path names a readable file
+    // Post: as above, over the file as for the constructors of Tokenizer
+    {
+        Tokenizer t = idle.poll();
+        if (t == null)
+            return new Tokenizer(path, charset, false);
+        try {
+            t.reset(path, charset);
+        }
+        catch (IOException | RuntimeException e) {
+            give(t);
+            throw e;
+        }
+        return t;
+    }
+
+    public Tokenizer take(Path path) throws IOException
+    // Post: as above with charset null
+    {
+        return take(path, null);
+    }
+
+    public void give(Tokenizer t)
+    // Pre:  t was taken from this pool and is not used again
+    // Post: t is detached from its input AND it is idle, unless the pool
+    //       already held capacity Tokenizers
+    {
+        t.detach();
+        idle.offer(t);
+    }
+
+    public int idle()
+    // Post: return the number of idle Tokenizers
+    {
+        return idle.size();
+    }
+}
@@ -0,0 +1,182 @@
+package tokenizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+
+DESCRIPTION:
+
+This class is the TokenizerMetrics which counts what it is told: the tokens of each type, the input units scanned, the units put back, and the time spent scanning tokens and waiting for input.  One object may be given to many Tokenizers -- all the files of a batch, say -- since every count is a LongAdder, which threads can add to at once without contending.
+
+The counts can be read directly, printed with toString, or published over JMX: 'register' adds the object to the platform MBean server as an MXBean named
+
+    tokenizer:type=TokenizerStats,name=<name>
+
+where a JMX client can watch the counts, and the error rate and mean time per token derived from them, while the program runs.
+
+STATE:
+
+    private LongAdder[] tokens;      // tokens scanned, by type ordinal
+    private LongAdder   units;       // input units scanned
+    private LongAdder   pushBacks;   // units put back
+    private LongAdder   scanNanos;   // time spent scanning tokens
+    private LongAdder   waitNanos;   // time spent waiting for input
+
+INTERFACE:
+
+    public TokenizerStats()
+    // Post: every count is 0
+
+    public ObjectName register(String name) throws JMException
+    // Post: this object is registered with the platform MBean server
+    //       under the name above AND return that name -- Except throw
+    //       JMException if the name is taken or not valid
+
+    public long getTokens(Token.TokenType type)
+    // Post: return the number of tokens scanned of type
+
+    public String toString()
+    // Post: return the counts, one line for the totals and one for the
+    //       types seen
+
+The methods of TokenizerMetrics and TokenizerStatsMXBean are described there.
+
+HELPER METHODS:
+
+There are no helper methods.
+
+CLASS INVARIANT:
+
+    tokens.length == the number of token types
+
+*/
+
+public class TokenizerStats implements TokenizerMetrics, TokenizerStatsMXBean {
+
+    // State
+
+    private static final Token.TokenType[] types = Token.TokenType.values();
+
+    private final LongAdder[] tokens    = new LongAdder[types.length];
+    private final LongAdder   units     = new LongAdder();
+    private final LongAdder   pushBacks = new LongAdder();
+    private final LongAdder   scanNanos = new LongAdder();
+    private final LongAdder   waitNanos = new LongAdder();
+
+    // Constructor
+
+    public TokenizerStats()
+    // Post: every count is 0
+    {
+        for (int i = 0; i != tokens.length; i++)
+            tokens[i] = new LongAdder();
+    }
+
+    // Interface -- TokenizerMetrics
+
+    public void tokenScanned(Token.TokenType type, long units, long nanos)
+    {
+        tokens[type.ordinal()].increment();
+        this.units.add(units);
+        scanNanos.add(nanos);
+    }
+
+    public void pushedBack()
+    {
+        pushBacks.increment();
+    }
+
+    public void waited(long nanos)
+    {
+        waitNanos.add(nanos);
+    }
+
+    // Interface -- TokenizerStatsMXBean
+
+    public long getTokens()
+    {
+        long n = 0;
+        for (LongAdder t : tokens)
+            n += t.sum();
+        return n;
+    }
+
+    public Map<String,Long> getTokenCounts()
+    {
+        Map<String,Long> counts = new LinkedHashMap<String,Long>();
+        for (Token.TokenType t : types)
+            counts.put(t.name(), tokens[t.ordinal()].sum());
+        return counts;
+    }
+
+    public long   getUnits()     { return units.sum(); }
+    public long   getErrors()    { return getTokens(Token.TokenType.ERROR_T); }
+    public long   getPushBacks() { return pushBacks.sum(); }
+    public long   getScanNanos() { return scanNanos.sum(); }
+    public long   getWaitNanos() { return waitNanos.sum(); }
+
+    public double getErrorRate()
+    {
+        long n = getTokens();
+        return (n == 0) ? 0 : (double)getErrors() / n;
+    }
+
+    public double getMeanTokenNanos()
+    {
+        long n = getTokens();
+        return (n == 0) ? 0 : (double)getScanNanos() / n;
+    }
+
+    public void reset()
+    {
+        for (LongAdder t : tokens)
+            t.reset();
+        units.reset();
+        pushBacks.reset();
+        scanNanos.reset();
+        waitNanos.reset();
+    }
+
+    // Interface -- public methods
+
+    public ObjectName register(String name) throws JMException
+    // Post: this object is registered with the platform MBean server
+    //       under tokenizer:type=TokenizerStats,name=<name> AND return
+    //       that name -- Except throw JMException if the name is taken
+    //       or not valid
+    {
+        ObjectName on = new ObjectName("tokenizer:type=TokenizerStats,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        return on;
+    }
+
+    public long getTokens(Token.TokenType type)
+    // Post: return the number of tokens scanned of type
+    {
+        return tokens[type.ordinal()].sum();
+    }
+
+    public String toString()
+    // Post: return the counts, one line for the totals and one for the
+    //       types seen
+    {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("%d tokens, %d units, %d errors (%.2f%%), %d push backs, %.1f ns/token, %.3f ms waiting for input%n",
+                               getTokens(), getUnits(), getErrors(), 100 * getErrorRate(),
+                               getPushBacks(), getMeanTokenNanos(), getWaitNanos() / 1e6));
+        String sep = "";
+        for (Token.TokenType t : types) {
+            long n = tokens[t.ordinal()].sum();
+            if (n != 0) {
+                s.append(sep).append(t).append(' ').append(n);
+                sep = ", ";
+            }
+        }
+        return s.toString();
+    }
+}
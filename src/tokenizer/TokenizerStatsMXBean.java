@@ -0,0 +1,57 @@
+package tokenizer;
+
+import java.util.Map;
+
+/**
+
+DESCRIPTION:
+
+This interface is the management view of a TokenizerStats: the attributes and the one operation which a JMX client such as jconsole sees once the stats have been registered with TokenizerStats.register.  Being an MXBean, it uses only types every client understands -- the counts by token type appear as a table of names and numbers.
+
+INTERFACE:
+
+    long getTokens()
+    // Post: return the number of tokens scanned
+
+    Map<String,Long> getTokenCounts()
+    // Post: return the number of tokens scanned of each type, by name
+
+    long getUnits()
+    // Post: return the number of input units scanned
+
+    long getErrors()
+    // Post: return the number of ERROR_T tokens
+
+    double getErrorRate()
+    // Post: return getErrors() / getTokens(), or 0 if there are none
+
+    long getPushBacks()
+    // Post: return the number of units put back
+
+    long getScanNanos()
+    // Post: return the time spent scanning tokens
+
+    double getMeanTokenNanos()
+    // Post: return getScanNanos() / getTokens(), or 0 if there are none
+
+    long getWaitNanos()
+    // Post: return the time spent waiting for input
+
+    void reset()
+    // Post: every count is 0
+
+*/
+
+public interface TokenizerStatsMXBean {
+
+    long getTokens();
+    Map<String,Long> getTokenCounts();
+    long getUnits();
+    long getErrors();
+    double getErrorRate();
+    long getPushBacks();
+    long getScanNanos();
+    double getMeanTokenNanos();
+    long getWaitNanos();
+    void reset();
+}
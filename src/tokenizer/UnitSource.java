@@ -0,0 +1,26 @@
+package tokenizer;
+
+/**
+
+DESCRIPTION:
+
+This interface is the read-only view of input units which the SymbolTable and NumberParser need: the units of a word or number, read where they lie, and their characters as a String.  Every ScanBuffer is one, over the units of its buffer; so is the array of bytes in which a PushTokenizer collects the token it is scanning, which has no cursor or mark to speak of.
+
+INTERFACE:
+
+    int unitAt(int index)
+    // Pre:  index is in the source
+    // Post: return the input unit at index -- a char, or a byte as a
+    //       value 0 .. 255
+
+    String text(int index, int length)
+    // Pre:  index .. index+length-1 are in the source
+    // Post: return the characters of those units as a new String
+
+*/
+
+interface UnitSource {
+
+    int unitAt(int index);
+    String text(int index, int length);
+}
@@ -0,0 +1,182 @@
+package tokenizer;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+
+DESCRIPTION:
+
+This program checks that the tokens an IncrementalTokenizer keeps up to date through its gap buffers and its resynchronization are those a new Tokenizer scans from the edited text.  Each of 'texts' random texts is edited 'edits' times at random -- a range removed, and pieces inserted, anywhere in the text -- and after each edit every token is compared, by type, name, offset, line and column, with the tokens of a Tokenizer over the text as it should now be.  The Change of each edit is checked as well: the tokens before getFirst() are untouched, and those after the tokens inserted are the old ones after the tokens removed, with the same type and name.
+
+The texts and the inserted strings are made of 'pieces', which hold blanks, ends of line, keywords, identifiers, numbers and their malformed starts, operators and characters above 127, so that edits split and join tokens of every kind.  Run it with
+
+     java tokenizer.IncrementalTokenizerTest [seed]
+
+it prints each failure and exits with status 1 if there are any.
+
+STATE:
+
+    private static String[] pieces;    // what the texts are made of
+    private static int      texts;     // how many texts are edited
+    private static int      edits;     // how many edits each
+    private static int      failures;  // checks failed so far
+
+INTERFACE:
+
+    public static void main(String[] args) throws Exception
+    // Post: the tokens after each edit of each text have been checked
+    //       AND the failures printed
+
+HELPER METHODS:
+
+    private static String random(Random r, int n)
+    // Post: return a string of at most n random pieces
+
+    private static List<String> tokens(IncrementalTokenizer t)
+    // Post: return the descriptions of the tokens of t
+
+    private static List<String> scan(String text)
+    // Post: return the descriptions of the tokens of text, scanned by a
+    //       new Tokenizer
+
+    private static String describe(Token t)
+    // Post: return the type, name and position of t, as compared
+
+    private static String kind(String description)
+    // Post: return the type and name of a description, without the
+    //       position
+
+    private static void fail(String message, String text)
+    // Post: message is printed with text AND counted in failures
+
+CLASS INVARIANT:
+
+This class has no class invariant.
+
+*/
+
+public class IncrementalTokenizerTest {
+
+    // State
+
+    private static final String[] pieces = {
+        " ", " ", "\t", "\n", "\n", "int", "float", "a", "Zq", "é", "٣", "#",
+        "0", "1", "42", "9", ".", "e", "+", "-", "=", "{", "}", ",", "(", ")", "*", "/", "%"
+    };
+
+    private static final int texts = 2000;
+    private static final int edits = 8;
+
+    private static int failures = 0;
+
+    // Interface
+
+    public static void main(String[] args) throws Exception
+    // Post: the tokens after each edit of each text have been checked
+    //       AND the failures printed
+    {
+        Random r = new Random((args.length > 0) ? Long.parseLong(args[0]) : 2024);
+        for (int n = 0; n != texts && failures < 10; n++) {
+            StringBuilder text = new StringBuilder(random(r, 60));
+            IncrementalTokenizer t = new IncrementalTokenizer(text);
+            if (!tokens(t).equals(scan(text.toString())))
+                fail("the tokens of a new IncrementalTokenizer differ", text.toString());
+
+            for (int e = 0; e != edits; e++) {
+                int offset  = r.nextInt(text.length() + 1);
+                int removed = r.nextInt(Math.min(text.length() - offset, 8) + 1);
+                String inserted = random(r, 3);
+                List<String> before = tokens(t);
+
+                IncrementalTokenizer.Change change = t.edit(offset, removed, inserted);
+                text.replace(offset, offset + removed, inserted);
+                String edit = "edit(" + offset + ", " + removed + ", `" + inserted + "') of";
+
+                List<String> after = tokens(t);
+                if (!t.getText().equals(text.toString()))
+                    fail(edit + " gives the text `" + t.getText() + "'", text.toString());
+                else if (!after.equals(scan(text.toString())))
+                    fail(edit + " gives the tokens " + after + "\n  expected " + scan(text.toString()), text.toString());
+
+                int first = change.getFirst();
+                int tail  = before.size() - first - change.getRemoved();
+                if (after.size() != first + change.getInserted() + tail)
+                    fail(edit + ": " + change + " does not account for " + after.size() + " tokens", text.toString());
+                else {
+                    if (!after.subList(0, first).equals(before.subList(0, first)))
+                        fail(edit + ": a token before " + change + " has changed", text.toString());
+                    for (int i = 0; i != tail; i++)
+                        if (!kind(after.get(first + change.getInserted() + i)).equals(
+                             kind(before.get(first + change.getRemoved() + i)))) {
+                            fail(edit + ": a token after " + change + " has changed", text.toString());
+                            break;
+                        }
+                }
+            }
+        }
+
+        if (failures != 0) {
+            System.out.println(failures + " failures");
+            System.exit(1);
+        }
+        System.out.println("IncrementalTokenizerTest passed");
+    }
+
+    // Helpers
+
+    private static String random(Random r, int n)
+    // Post: return a string of at most n random pieces
+    {
+        StringBuilder s = new StringBuilder();
+        for (int i = r.nextInt(n + 1); i != 0; i--)
+            s.append(pieces[r.nextInt(pieces.length)]);
+        return s.toString();
+    }
+
+    private static List<String> tokens(IncrementalTokenizer t)
+    // Post: return the descriptions of the tokens of t
+    {
+        List<String> tokens = new ArrayList<String>();
+        for (int i = 0; i != t.size(); i++)
+            tokens.add(describe(t.get(i)));
+        return tokens;
+    }
+
+    private static List<String> scan(String text)
+    // Post: return the descriptions of the tokens of text, scanned by a
+    //       new Tokenizer
+    {
+        Tokenizer t = new Tokenizer(new BufferedReader(new StringReader(text)), false);
+        List<String> tokens = new ArrayList<String>();
+        Token k;
+        do {
+            k = t.getNextToken();
+            tokens.add(describe(k));
+        } while (k.getType() != Token.TokenType.EOF_T);
+        return tokens;
+    }
+
+    private static String describe(Token t)
+    // Post: return the type, name and position of t, as compared
+    {
+        return t.getType() + " `" + t.getName() + "' @" + t.getOffset() + " " + t.getLine() + ":" + t.getColumn();
+    }
+
+    private static String kind(String description)
+    // Post: return the type and name of a description, without the
+    //       position
+    {
+        return description.substring(0, description.lastIndexOf(" @"));
+    }
+
+    private static void fail(String message, String text)
+    // Post: message is printed with text AND counted in failures
+    {
+        System.out.println(message + " `" + text.replace("\n", "\\n").replace("\t", "\\t") + "'");
+        failures++;
+    }
+}
@@ -0,0 +1,140 @@
+package tokenizer;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+
+DESCRIPTION:
+
+This program checks that a digit above 127 -- here the Arabic-Indic digits '٣' and '٤' -- is never scanned as part of a number.  The value of a number is worked out from its units as ASCII digits, and the units are chars from a Reader but UTF-8 bytes from a mapped file, so a number holding such a digit would have a wrong value, and a different wrong value for each kind of input.  Each of those digits is an ERROR_T of its own instead, as any other character which is not a letter is.
+
+The input is scanned through a Reader, through a memory mapped file and through a PushTokenizer, and each must give exactly the tokens of 'expected'.  Run it with
+
+     java tokenizer.NonAsciiDigitTest
+
+it prints each failure and exits with status 1 if there are any.
+
+STATE:
+
+    private static String   input;     // the text scanned
+    private static String[] expected;  // its tokens, as described by
+                                       // describe
+    private static int      failures;  // checks failed so far
+
+INTERFACE:
+
+    public static void main(String[] args) throws Exception
+    // Post: the tokens of input from each kind of input have been
+    //       checked against expected AND the failures printed
+
+HELPER METHODS:
+
+    private static List<String> pull(Tokenizer t)
+    // Post: return the descriptions of the tokens of t, up to EOF_T
+
+    private static String describe(Token t)
+    // Post: return the type, text and value of t, as in expected
+
+    private static void check(String how, List<String> tokens)
+    // Post: tokens are compared with expected, and each difference
+    //       printed and counted in failures
+
+CLASS INVARIANT:
+
+This class has no class invariant.
+
+*/
+
+public class NonAsciiDigitTest {
+
+    // State
+
+    private static final String input = "٣٤ 34 x٣ 1٣ 2.٣ ٣.5\n";
+
+    private static final String[] expected = {
+        "ERROR_T ٣", "ERROR_T ٤", "INT_T 34 =34",
+        "IDENT_T x", "ERROR_T ٣", "INT_T 1 =1", "ERROR_T ٣",
+        "ERROR_T 2.", "ERROR_T ٣", "ERROR_T ٣", "FLOAT_T .5 =0.5",
+        "EOF_T "
+    };
+
+    private static int failures = 0;
+
+    // Interface
+
+    public static void main(String[] args) throws Exception
+    // Post: the tokens of input from each kind of input have been
+    //       checked against expected AND the failures printed
+    {
+        check("reader", pull(new Tokenizer(new BufferedReader(new StringReader(input)), false)));
+
+        Path file = Files.createTempFile("digits", ".pdef");
+        try {
+            Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+            check("mapped", pull(new Tokenizer(file, false)));
+        }
+        finally {
+            Files.delete(file);
+        }
+
+        List<String> pushed = new ArrayList<String>();
+        PushTokenizer push = new PushTokenizer(t -> pushed.add(describe(t)));
+        for (byte b : input.getBytes(StandardCharsets.UTF_8))  // a byte at a time
+            push.feed(ByteBuffer.wrap(new byte[] { b }));
+        push.endOfInput();
+        check("push", pushed);
+
+        if (failures != 0) {
+            System.out.println(failures + " failures");
+            System.exit(1);
+        }
+        System.out.println("NonAsciiDigitTest passed");
+    }
+
+    // Helpers
+
+    private static List<String> pull(Tokenizer t)
+    // Post: return the descriptions of the tokens of t, up to EOF_T
+    {
+        List<String> tokens = new ArrayList<String>();
+        Token k;
+        do {
+            k = t.getNextToken();
+            tokens.add(describe(k));
+        } while (k.getType() != Token.TokenType.EOF_T);
+        return tokens;
+    }
+
+    private static String describe(Token t)
+    // Post: return the type, text and value of t, as in expected
+    {
+        String s = t.getType() + " " + t.getName();
+        if (t.getType() == Token.TokenType.INT_T)
+            s += " =" + t.getLong();
+        else if (t.getType() == Token.TokenType.FLOAT_T)
+            s += " =" + t.getDouble();
+        return s;
+    }
+
+    private static void check(String how, List<String> tokens)
+    // Post: tokens are compared with expected, and each difference
+    //       printed and counted in failures
+    {
+        int n = Math.max(tokens.size(), expected.length);
+        for (int i = 0; i != n; i++) {
+            String got  = (i < tokens.size()) ? tokens.get(i) : "nothing";
+            String want = (i < expected.length) ? expected[i] : "nothing";
+            if (!got.equals(want)) {
+                System.out.println(how + ": token " + i + " is `" + got + "', expected `" + want + "'");
+                failures++;
+            }
+        }
+    }
+}
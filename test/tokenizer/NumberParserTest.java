@@ -0,0 +1,217 @@
+package tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+
+DESCRIPTION:
+
+This program checks NumberParser against Long.parseLong and Double.parseDouble, which are taken to be right.  NumberParser has three ways to a double -- Clinger's fast path, the Eisel-Lemire product with the 128-bit table POW5 and its round to even, and the fallback for more than 19 digits -- and each must give exactly the double Double.parseDouble gives, bit for bit; an integer must have the value Long.parseLong gives, or -1 if that throws.
+
+The inputs are those of 'cases' -- the limits of the double and long ranges, the smallest normal and subnormal doubles, halfway cases which round to even, and mantissas of 19 digits and more -- and 'randomInputs' numbers of each of three kinds: the shortest decimal of a random double, as Double.toString writes it; random strings of digits, with or without a '.' and an exponent, over the whole range of exponents; and random integers, some of them past Long.MAX_VALUE.  Each is parsed both from chars and from UTF-8 bytes, as the two kinds of ScanBuffer hold them.  Run it with
+
+     java tokenizer.NumberParserTest [seed]
+
+it prints each failure and exits with status 1 if there are any.
+
+STATE:
+
+    private static String[] cases;         // numbers chosen by hand
+    private static int      randomInputs;  // how many of each kind
+    private static int      failures;      // checks failed so far
+
+INTERFACE:
+
+    public static void main(String[] args) throws Exception
+    // Post: each number has been parsed and checked AND the failures
+    //       printed
+
+HELPER METHODS:
+
+    private static void check(String number)
+    // Pre:  number is an INT_T or FLOAT_T
+    // Post: the values NumberParser gives number from chars and from
+    //       bytes are compared with those of Long.parseLong or
+    //       Double.parseDouble, and each difference printed and counted
+    //       in failures
+
+    private static String digits(Random r, int min, int max)
+    // Post: return min .. max random digits, the first of them not 0
+
+    private static String randomFloat(Random r)
+    // Post: return a random FLOAT_T
+
+The chars of a number are held by the nested class Chars, a UnitSource over a String.
+
+CLASS INVARIANT:
+
+This class has no class invariant.
+
+*/
+
+public class NumberParserTest {
+
+    // State
+
+    private static final String[] cases = {
+        // integers
+        "0", "1", "9", "4294967296", "999999999999999999", "1000000000000000000",
+        "9223372036854775807", "9223372036854775808", "9223372036854775809",
+        "18446744073709551615", "18446744073709551616", "99999999999999999999",
+        "123456789012345678901234567890",
+        // the limits of the double range
+        "2.2250738585072011e-308", "2.2250738585072012e-308", "2.2250738585072014e-308",
+        "2.225073858507201136057409796709131975934819546351645648e-308",
+        "4.9e-324", "4.9E-324", "5e-324", "2e-324", "3e-324",
+        "2.4703282292062327e-324", "2.4703282292062328e-324", "1e-400", "0.0", ".0e0",
+        "1.7976931348623157e308", "1.7976931348623158e308", "1.7976931348623159e308",
+        "1.797693134862315807e308", "1.797693134862315808e308", "1e309", "1e400",
+        // exactness of the fast path and its edges
+        "9007199254740992", "9007199254740993", "9007199254740994", "9007199254740995",
+        "9007199254740993.0", "9007199254740993e0", "9007199254740993.000000000000001",
+        "1e22", "1e23", "0.1", "0.2", "0.3", ".1", "1.5", "3.14159",
+        "1e-22", "1e-23", "123456789e-22", "123456789e22",
+        // halfway cases, which round to even
+        "1.00000000000000011102230246251565404236316680908203125",
+        "1.00000000000000011102230246251565404236316680908203124",
+        "1.00000000000000011102230246251565404236316680908203126",
+        "9007199254740993.00000000000000000000000000000000000000001",
+        "4.4501477170144022721148195934182639518696390927032912960468522194496444440421538"
+          + "e-308",
+        // mantissas of 19 digits and more
+        "1234567890123456789", "12345678901234567890", "1234567890123456789.0",
+        "9999999999999999999", "99999999999999999999e0", "18446744073709551615.0",
+        "18446744073709551616.0", "0.1000000000000000055511151231257827",
+        "0.10000000000000000555111512312578270211815834045410156250",
+        "3.0000000000000000000000000000000000000000000000000000001",
+        "123456789012345678901234567890e-10", "0.0000000000000000000000000001",
+        "7.2057594037927933e16", "8.98846567431158e307", "2.2250738585072012e-308",
+        "1.00000000000000000000000000000000000000000000000000000000001e-300"
+    };
+
+    private static final int randomInputs = 200000;
+
+    private static int failures = 0;
+
+    // Interface
+
+    public static void main(String[] args) throws Exception
+    // Post: each number has been parsed and checked AND the failures
+    //       printed
+    {
+        for (String number : cases)
+            check(number);
+
+        Random r = new Random((args.length > 0) ? Long.parseLong(args[0]) : 2024);
+        for (int i = 0; i != randomInputs && failures < 20; i++) {
+            double d = Double.longBitsToDouble(r.nextLong() & Long.MAX_VALUE);
+            if (!Double.isNaN(d) && !Double.isInfinite(d))
+                check(Double.toString(d));
+            check(randomFloat(r));
+            check(r.nextInt(4) == 0 ? digits(r, 19, 21) : Long.toString((r.nextLong() & Long.MAX_VALUE) >>> r.nextInt(63)));
+        }
+
+        if (failures != 0) {
+            System.out.println(failures + " failures");
+            System.exit(1);
+        }
+        System.out.println("NumberParserTest passed");
+    }
+
+    // Helpers
+
+    private static void check(String number)
+    // Pre:  number is an INT_T or FLOAT_T
+    // Post: the values NumberParser gives number from chars and from
+    //       bytes are compared with those of Long.parseLong or
+    //       Double.parseDouble, and each difference printed and counted
+    //       in failures
+    {
+        UnitSource chars = new Chars(number);
+        UnitSource bytes = new ByteScanBuffer(ByteBuffer.wrap(number.getBytes(StandardCharsets.UTF_8)));
+        int n = number.length();
+
+        if (number.chars().allMatch(ch -> ch >= '0' && ch <= '9')) {
+            long expected;
+            try {
+                expected = Long.parseLong(number);
+            }
+            catch (NumberFormatException e) {
+                expected = -1;
+            }
+            long fromChars = NumberParser.parseLong(chars, 0, n);
+            long fromBytes = NumberParser.parseLong(bytes, 0, n);
+            if (fromChars != expected || fromBytes != expected) {
+                System.out.println("parseLong(" + number + ") is " + fromChars + " from chars, "
+                                   + fromBytes + " from bytes, expected " + expected);
+                failures++;
+            }
+        }
+
+        double expected = Double.parseDouble(number);
+        double fromChars = NumberParser.parseDouble(chars, 0, n);
+        double fromBytes = NumberParser.parseDouble(bytes, 0, n);
+        if (Double.doubleToRawLongBits(fromChars) != Double.doubleToRawLongBits(expected)
+            || Double.doubleToRawLongBits(fromBytes) != Double.doubleToRawLongBits(expected)) {
+            System.out.println("parseDouble(" + number + ") is " + fromChars + " from chars, "
+                               + fromBytes + " from bytes, expected " + expected);
+            failures++;
+        }
+    }
+
+    private static String digits(Random r, int min, int max)
+    // Post: return min .. max random digits, the first of them not 0
+    {
+        StringBuilder s = new StringBuilder();
+        s.append((char)('1' + r.nextInt(9)));
+        for (int i = min + r.nextInt(max - min + 1) - 1; i > 0; i--)
+            s.append((char)('0' + r.nextInt(10)));
+        return s.toString();
+    }
+
+    private static String randomFloat(Random r)
+    // Post: return a random FLOAT_T
+    {
+        StringBuilder s = new StringBuilder();
+        int form = r.nextInt(3);  // 0: i.f  1: .f  2: i with an exponent
+        if (form != 1)
+            s.append(r.nextInt(8) == 0 ? "0" : digits(r, 1, 30));
+        if (form != 2) {
+            s.append('.');
+            for (int i = 1 + r.nextInt(30); i != 0; i--)
+                s.append((char)('0' + r.nextInt(10)));
+        }
+        if (form == 2 || r.nextBoolean()) {
+            s.append(r.nextBoolean() ? 'e' : 'E');
+            int sign = r.nextInt(3);
+            if (sign != 0)
+                s.append(sign == 1 ? '+' : '-');
+            s.append(r.nextInt(r.nextBoolean() ? 30 : 400));
+        }
+        return s.toString();
+    }
+
+    // The chars of a number
+
+    private static class Chars implements UnitSource {
+
+        private final String s;
+
+        Chars(String s)
+        {
+            this.s = s;
+        }
+
+        public int unitAt(int index)
+        {
+            return s.charAt(index);
+        }
+
+        public String text(int index, int length)
+        {
+            return s.substring(index, index + length);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package tokenizer;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+
+DESCRIPTION:
+
+This program checks the machine compiled from the lexical spec in ScanTable against a scanner written by hand, a switch on its state for each character, as the Tokenizer's was before the table replaced it.  The two are written from the spec independently -- nothing of ScanTable is used by 'reference' -- so a rule compiled wrongly, or a table entry which puts back, appends or ends a token where the spec says otherwise, shows up as a token of a different type, text, line or column.
+
+The corpus is the sample inputs src/dfa_state_test, src/ident_state_test and src/start_state_test, the inputs of 'cases' -- chosen for the malformed tokens and the characters put back after a token ends -- and 'randomInputs' strings put together at random from 'pieces'.  Each input is scanned by the Tokenizer through a Reader and through a memory mapped file, in TOKENS and in RECOVER mode, and each must give exactly the tokens of the reference.  Run it from the project directory with
+
+     java tokenizer.ScanTableConformanceTest [seed]
+
+it prints each failure and exits with status 1 if there are any.
+
+STATE:
+
+    private static String[] samples;       // the sample input files
+    private static String[] cases;         // inputs chosen by hand
+    private static String[] pieces;        // what the random inputs are
+                                           // made of
+    private static int      randomInputs;  // how many of them
+    private static String   delimiters;    // the characters which end a
+                                           // malformed token in RECOVER
+    private static String   operators;     // the single character tokens
+    private static Token.TokenType[] operatorTypes;  // and their types
+    private static int      failures;      // checks failed so far
+
+INTERFACE:
+
+    public static void main(String[] args) throws Exception
+    // Post: the tokens of each input of the corpus have been checked
+    //       against those of reference AND the failures printed
+
+HELPER METHODS:
+
+    private static void check(String input) throws Exception
+    // Post: the tokens of input from a Reader and a mapped file, in
+    //       TOKENS and RECOVER mode, are compared with those of
+    //       reference, and each difference printed and counted in
+    //       failures
+
+    private static List<String> pull(Tokenizer t)
+    // Post: return the descriptions of the tokens of t, up to EOF_T
+
+    private static List<String> reference(String input, boolean recover)
+    // Pre:  input holds no '\0' and no surrogate
+    // Post: return the descriptions of the tokens of input, scanned by
+    //       the spec -- with each malformed token extended to the next
+    //       delimiter if recover
+
+    private static Token.TokenType number(Token.TokenType type, String text)
+    // Pre:  type is INT_T or FLOAT_T and text is a number of that type
+    // Post: return type -- Except ERROR_T if text is out of range
+
+    private static boolean isLetter(char ch)
+    // Post: return true if ch is a letter of an identifier
+
+    private static boolean isDigit(char ch)
+    // Post: return true if ch is a digit of a number
+
+    private static String describe(Token.TokenType type, String text, int line, int column)
+    // Post: return the type, text and position of a token, as compared
+
+    private static String show(String input)
+    // Post: return input with its blanks made visible
+
+CLASS INVARIANT:
+
+This class has no class invariant.
+
+*/
+
+public class ScanTableConformanceTest {
+
+    // State
+
+    private static final String[] samples = {
+        "src/dfa_state_test", "src/ident_state_test", "src/start_state_test"
+    };
+
+    private static final String[] cases = {
+        "", "\n", "  \t \n\n", "x", "int", "float", "intx", "floatfloat", "A1 b22c",
+        "0", "7", "0 7", "123", "0x", "0(", "007", "00a)b c", "01.5", "00,1", "00\n1",
+        "7.", "7.x", ".", ".x", ".8", "0.5", "0.", "9.9.9", "1..2", "3,4=5{6}7",
+        "1e", "1e5", "1E+5", "1e-", "1e+x", "1ex", "0e5", ".5e3", "2.5E-3", "1e5e5", "1e5.5",
+        "9223372036854775807", "9223372036854775808", "99999999999999999999x",
+        "1e308", "1e309", "1e-999", "1.5e99999",
+        "a=b,c", "{a=b,c}", "(1+2)*3/4%5-6", "#", "x±y #%$", "a#b", "7.#", "1e#",
+        "été café", "٣٤ x٣ 1٣ 2.٣ ٣.5", "a\rb\r\n", "\tDone!", "x\n\ny\n z"
+    };
+
+    private static final String[] pieces = {
+        " ", " ", "\t", "\n", "\n", "int", "float", "a", "Zq", "é", "٣", "±", "#", "\r",
+        "0", "0", "1", "42", "9", ".", ".", "e", "E", "+", "-", "=", "{", "}", ",",
+        "(", ")", "*", "/", "%", "99999999999999999999", "e400"
+    };
+
+    private static final int randomInputs = 2000;
+
+    private static final String delimiters = " \t\n\0={},";
+    private static final String operators  = "={},()+-*/%";
+    private static final Token.TokenType[] operatorTypes = {
+        Token.TokenType.ASSIGN_T, Token.TokenType.LCB_T, Token.TokenType.RCB_T, Token.TokenType.COMMA_T,
+        Token.TokenType.LP_T, Token.TokenType.RP_T, Token.TokenType.ADD_T, Token.TokenType.SUB_T,
+        Token.TokenType.MUL_T, Token.TokenType.DIV_T, Token.TokenType.MOD_T
+    };
+
+    private static int failures = 0;
+
+    // Interface
+
+    public static void main(String[] args) throws Exception
+    // Post: the tokens of each input of the corpus have been checked
+    //       against those of reference AND the failures printed
+    {
+        for (String sample : samples)
+            check(new String(Files.readAllBytes(Paths.get(sample)), StandardCharsets.UTF_8));
+        for (String input : cases)
+            check(input);
+
+        Random random = new Random((args.length > 0) ? Long.parseLong(args[0]) : 2024);
+        for (int i = 0; i != randomInputs; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int n = random.nextInt(40); n != 0; n--)
+                input.append(pieces[random.nextInt(pieces.length)]);
+            check(input.toString());
+        }
+
+        if (failures != 0) {
+            System.out.println(failures + " failures");
+            System.exit(1);
+        }
+        System.out.println("ScanTableConformanceTest passed");
+    }
+
+    // Helpers
+
+    private static void check(String input) throws Exception
+    // Post: the tokens of input from a Reader and a mapped file, in
+    //       TOKENS and RECOVER mode, are compared with those of
+    //       reference, and each difference printed and counted in
+    //       failures
+    {
+        Path file = Files.createTempFile("conformance", ".pdef");
+        try {
+            Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+            for (Tokenizer.ErrorMode mode : new Tokenizer.ErrorMode[] { Tokenizer.ErrorMode.TOKENS,
+                                                                        Tokenizer.ErrorMode.RECOVER }) {
+                List<String> expected = reference(input, mode == Tokenizer.ErrorMode.RECOVER);
+
+                Tokenizer reader = new Tokenizer(new BufferedReader(new StringReader(input)), false);
+                Tokenizer mapped = new Tokenizer(file, false);
+                reader.setErrorMode(mode, 0);
+                mapped.setErrorMode(mode, 0);
+                List<String> got = pull(reader);
+                if (!got.equals(expected)) {
+                    System.out.println(mode + " reader `" + show(input) + "':\n  " + got + "\n  expected " + expected);
+                    failures++;
+                }
+                got = pull(mapped);
+                if (!got.equals(expected)) {
+                    System.out.println(mode + " mapped `" + show(input) + "':\n  " + got + "\n  expected " + expected);
+                    failures++;
+                }
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<String> pull(Tokenizer t)
+    // Post: return the descriptions of the tokens of t, up to EOF_T
+    {
+        List<String> tokens = new ArrayList<String>();
+        Token k;
+        do {
+            k = t.getNextToken();
+            tokens.add(describe(k.getType(), k.getName(), k.getLine(), k.getColumn()));
+        } while (k.getType() != Token.TokenType.EOF_T);
+        return tokens;
+    }
+
+    private enum State { START_S, ID_S, ZERO_S, LEADING_ZERO_S, INT_S, PERI_S, FLOAT_S,
+                         EXP_S, EXP_SIGN_S, EXP_INT_S, DONE_S };
+
+    private static List<String> reference(String input, boolean recover)
+    // Pre:  input holds no '\0' and no surrogate
+    // Post: return the descriptions of the tokens of input, scanned by
+    //       the spec -- with each malformed token extended to the next
+    //       delimiter if recover
+    {
+        List<String> tokens = new ArrayList<String>();
+        int pos = 0;        // index of the next character
+        int line = 1;
+        int lineStart = 0;  // index of the start of line
+        Token.TokenType type;
+        do {
+            State state = State.START_S;
+            type = Token.TokenType.ERROR_T;
+            int start = pos;
+            while (state != State.DONE_S) {
+                char ch = (pos < input.length()) ? input.charAt(pos) : '\0';
+                pos++;  // put back below by pos--
+                switch (state) {
+                    case START_S:
+                        if (ch == ' ' || ch == '\t' || ch == '\n') {
+                            if (ch == '\n') {
+                                line++;
+                                lineStart = pos;
+                            }
+                            start = pos;
+                        }
+                        else if (ch == '\0') {
+                            pos--;  // nothing is read past the end
+                            type = Token.TokenType.EOF_T;
+                            state = State.DONE_S;
+                        }
+                        else if (isLetter(ch))
+                            state = State.ID_S;
+                        else if (ch == '0') {
+                            type = Token.TokenType.INT_T;
+                            state = State.ZERO_S;
+                        }
+                        else if (isDigit(ch)) {
+                            type = Token.TokenType.INT_T;
+                            state = State.INT_S;
+                        }
+                        else if (ch == '.')
+                            state = State.PERI_S;
+                        else {
+                            int op = operators.indexOf(ch);
+                            if (op >= 0)
+                                type = operatorTypes[op];
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case ID_S:
+                        if (!isLetter(ch)) {
+                            pos--;
+                            String word = input.substring(start, pos);
+                            type = (word.equals("int") || word.equals("float"))
+                                   ? Token.TokenType.TYPE_T : Token.TokenType.IDENT_T;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case ZERO_S:
+                    case INT_S:
+                        if (isDigit(ch)) {
+                            if (state == State.ZERO_S) {
+                                type = Token.TokenType.ERROR_T;
+                                state = State.LEADING_ZERO_S;
+                            }
+                        }
+                        else if (ch == '.') {
+                            type = Token.TokenType.ERROR_T;
+                            state = State.PERI_S;
+                        }
+                        else if (ch == 'e' || ch == 'E') {
+                            type = Token.TokenType.ERROR_T;
+                            state = State.EXP_S;
+                        }
+                        else {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case LEADING_ZERO_S:
+                        if (delimiters.indexOf(ch) >= 0) {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case PERI_S:
+                        if (isDigit(ch)) {
+                            type = Token.TokenType.FLOAT_T;
+                            state = State.FLOAT_S;
+                        }
+                        else {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case FLOAT_S:
+                        if (ch == 'e' || ch == 'E') {
+                            type = Token.TokenType.ERROR_T;
+                            state = State.EXP_S;
+                        }
+                        else if (!isDigit(ch)) {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case EXP_S:
+                        if (ch == '+' || ch == '-')
+                            state = State.EXP_SIGN_S;
+                        else if (isDigit(ch)) {
+                            type = Token.TokenType.FLOAT_T;
+                            state = State.EXP_INT_S;
+                        }
+                        else {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case EXP_SIGN_S:
+                        if (isDigit(ch)) {
+                            type = Token.TokenType.FLOAT_T;
+                            state = State.EXP_INT_S;
+                        }
+                        else {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    case EXP_INT_S:
+                        if (!isDigit(ch)) {
+                            pos--;
+                            state = State.DONE_S;
+                        }
+                        break;
+                    default:
+                        throw new AssertionError(state);
+                }
+            }
+
+            if (type == Token.TokenType.INT_T || type == Token.TokenType.FLOAT_T)
+                type = number(type, input.substring(start, pos));
+            if (type == Token.TokenType.ERROR_T && recover)
+                while (pos < input.length() && delimiters.indexOf(input.charAt(pos)) < 0)
+                    pos++;
+            tokens.add(describe(type, input.substring(start, pos), line, start - lineStart + 1));
+        } while (type != Token.TokenType.EOF_T);
+        return tokens;
+    }
+
+    private static Token.TokenType number(Token.TokenType type, String text)
+    // Pre:  type is INT_T or FLOAT_T and text is a number of that type
+    // Post: return type -- Except ERROR_T if text is out of range
+    {
+        try {
+            if (type == Token.TokenType.INT_T)
+                Long.parseLong(text);
+            else if (Double.isInfinite(Double.parseDouble(text)))
+                return Token.TokenType.ERROR_T;
+            return type;
+        }
+        catch (NumberFormatException e) {
+            return Token.TokenType.ERROR_T;
+        }
+    }
+
+    private static boolean isLetter(char ch)
+    // Post: return true if ch is a letter of an identifier
+    {
+        return (ch < 128) ? (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') : Character.isLetter(ch);
+    }
+
+    private static boolean isDigit(char ch)
+    // Post: return true if ch is a digit of a number
+    {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static String describe(Token.TokenType type, String text, int line, int column)
+    // Post: return the type, text and position of a token, as compared
+    {
+        return type + " `" + show(text) + "' " + line + ":" + column;
+    }
+
+    private static String show(String input)
+    // Post: return input with its blanks made visible
+    {
+        return input.replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
+    }
+}